@@ -1,17 +1,35 @@
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Scanner;
-
-public class AVLTree<Key extends Comparable> {
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class AVLTree<Key extends Comparable> implements Iterable<Key> {
     private Node root;
+    private PrefixIndex prefixIndex; // optional, see enablePrefixIndex()
     private class Node {
         Key word;
         Node left, right;
         int height;
+        int size; // number of nodes in the subtree rooted here
 
         public Node(Key word) {
             this.word = word;
             this.left = null;
             this.right = null;
             this.height = 0; // leaf node has height 0
+            this.size = 1;
         }
     }
 
@@ -19,13 +37,93 @@ public class AVLTree<Key extends Comparable> {
         this.root = null;
     }
 
+    /**
+     * Builds a perfectly balanced tree from words in ascending order in O(n),
+     * instead of one treeInsert (and usually a rotation) per word. Runs of equal
+     * words are collapsed into one.
+     *
+     * @param sortedWords Words in ascending order, duplicates allowed.
+     * @throws IllegalArgumentException if a word is smaller than the one before it
+     */
+    public static <K extends Comparable> AVLTree<K> fromSorted(Iterator<? extends K> sortedWords) {
+        List<K> distinct = new ArrayList<>();
+        while (sortedWords.hasNext()) {
+            K word = sortedWords.next();
+            if (!distinct.isEmpty()) {
+                int cmp = word.compareTo(distinct.get(distinct.size() - 1));
+                if (cmp < 0) {
+                    throw new IllegalArgumentException("Words must be sorted: '" + word + "' after '"
+                            + distinct.get(distinct.size() - 1) + "'.");
+                }
+                if (cmp == 0) {
+                    continue;
+                }
+            }
+            distinct.add(word);
+        }
+        AVLTree<K> tree = new AVLTree<>();
+        tree.root = tree.build(distinct, 0, distinct.size());
+        return tree;
+    }
+
+    /**
+     * Builds the subtree for words[from, to) around its middle word. Both halves
+     * differ in size by at most one, so the result is balanced by construction.
+     */
+    private Node build(List<Key> words, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        Node node = new Node(words.get(mid));
+        node.left = build(words, from, mid);
+        node.right = build(words, mid + 1, to);
+        update(node);
+        return node;
+    }
+
+    /**
+     * Writes the words, in order, to a compressed, checksummed snapshot that
+     * {@link #load} turns back into a tree without one treeInsert per word.
+     * The words must be Strings. An existing file is replaced only once the new
+     * snapshot is complete.
+     */
+    public void save(Path file) throws IOException {
+        try (WordSnapshot.Writer writer = new WordSnapshot.Writer(file, WordSnapshot.AVL, size())) {
+            for (Key word : this) {
+                writer.add((String) word, 1);
+            }
+            writer.finish();
+        }
+    }
+
+    /**
+     * Reads a snapshot written by {@link #save} and builds a perfectly balanced
+     * tree from it in O(n), with no rotations.
+     *
+     * @throws IOException if the file cannot be read or fails its checks
+     */
+    public static AVLTree<String> load(Path file) throws IOException {
+        WordSnapshot.Contents contents = WordSnapshot.read(file, WordSnapshot.AVL);
+        AVLTree<String> tree = new AVLTree<>();
+        tree.root = tree.build(contents.words, 0, contents.words.size());
+        return tree;
+    }
+
     // --> core AVL helper functions <--
     private int height(Node node) {
         return (node == null) ? -1 : node.height;
     }
 
-    private void updateHeight(Node node) {
-        if (node != null) { node.height = 1 + Math.max(height(node.left), height(node.right)); }
+    private int size(Node node) {
+        return (node == null) ? 0 : node.size;
+    }
+
+    private void update(Node node) { // recompute height and subtree size from the children
+        if (node != null) {
+            node.height = 1 + Math.max(height(node.left), height(node.right));
+            node.size = 1 + size(node.left) + size(node.right);
+        }
     }
 
     private int getBalanceFactor(Node node) {
@@ -39,8 +137,8 @@ public class AVLTree<Key extends Comparable> {
         x.right = node;
         node.left = T2;
 
-        updateHeight(node);
-        updateHeight(x);
+        update(node);
+        update(x);
 
         return x;
     }
@@ -52,14 +150,18 @@ public class AVLTree<Key extends Comparable> {
         x.left = node;
         node.right = T2;
 
-        updateHeight(node);
-        updateHeight(x);
+        update(node);
+        update(x);
 
         return x;
     }
 
     public void treeInsert(Key word) {
+        int before = size();
         root = insert(root, word);
+        if (prefixIndex != null && size() != before) {
+            prefixIndex.add((String) word);
+        }
     }
 
     private Node insert(Node node, Key word) {
@@ -74,7 +176,7 @@ public class AVLTree<Key extends Comparable> {
             node.right = insert(node.right, word);
         }
 
-        updateHeight(node);
+        update(node);
 
         int balance = getBalanceFactor(node);
 
@@ -120,7 +222,11 @@ public class AVLTree<Key extends Comparable> {
     }
 
     public void treeRemove(Key word) {
+        int before = size();
         root = remove(root, word);
+        if (prefixIndex != null && size() != before) {
+            prefixIndex.remove((String) word);
+        }
     }
 
     private Node remove(Node node, Key word) {
@@ -148,7 +254,7 @@ public class AVLTree<Key extends Comparable> {
             return null;
         }
 
-        updateHeight(node);
+        update(node);
 
         int balance = getBalanceFactor(node);
 
@@ -178,6 +284,314 @@ public class AVLTree<Key extends Comparable> {
         return node;
     }
 
+    // --> order statistics <--
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Number of words strictly smaller than `word`, in O(log n).
+     */
+    public int rank(Key word) {
+        int rank = 0;
+        Node current = root;
+        while (current != null) {
+            int cmp = word.compareTo(current.word);
+            if (cmp <= 0) {
+                current = current.left;
+            } else {
+                rank += size(current.left) + 1;
+                current = current.right;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * The k-th smallest word, counting from 0, in O(log n).
+     */
+    public Key select(int k) {
+        if (k < 0 || k >= size(root)) {
+            throw new IndexOutOfBoundsException("Rank " + k + " is out of range for " + size(root) + " words.");
+        }
+        Node current = root;
+        while (true) {
+            int leftSize = size(current.left);
+            if (k < leftSize) {
+                current = current.left;
+            } else if (k > leftSize) {
+                k -= leftSize + 1;
+                current = current.right;
+            } else {
+                return current.word;
+            }
+        }
+    }
+
+    /**
+     * Number of words `w` with lo <= w <= hi, in O(log n).
+     */
+    public int countRange(Key lo, Key hi) {
+        if (lo.compareTo(hi) > 0) {
+            return 0;
+        }
+        return rank(hi) + treeSearch(hi) - rank(lo);
+    }
+
+    // --> join-based set operations <--
+    private static final int PARALLEL_THRESHOLD = 4096; // below this many nodes a subproblem runs sequentially
+
+    /**
+     * The result of splitting a tree around a key: the keys below it, the node
+     * holding the key itself (null if absent), and the keys above it.
+     */
+    private class Split {
+        final Node left, middle, right;
+
+        Split(Node left, Node middle, Node right) {
+            this.left = left;
+            this.middle = middle;
+            this.right = right;
+        }
+    }
+
+    /**
+     * Joins `left`, the single node `middle` and `right` into one AVL tree, where
+     * every key in `left` is smaller than middle.word and every key in `right` is
+     * larger. Runs in O(|height(left) - height(right)| + 1).
+     */
+    private Node join(Node left, Node middle, Node right) {
+        if (height(left) > height(right) + 1) {
+            return joinRight(left, middle, right);
+        }
+        if (height(right) > height(left) + 1) {
+            return joinLeft(left, middle, right);
+        }
+        middle.left = left;
+        middle.right = right;
+        update(middle);
+        return middle;
+    }
+
+    /**
+     * join() for a left tree taller than the right one: walks down the right
+     * spine of `left` to a subtree of about the height of `right`, hangs the two
+     * under `middle` there, and rotates on the way back up where needed.
+     */
+    private Node joinRight(Node left, Node middle, Node right) {
+        Node c = left.right;
+        if (height(c) <= height(right) + 1) {
+            middle.left = c;
+            middle.right = right;
+            update(middle);
+            left.right = (height(middle) <= height(left.left) + 1) ? middle : rightRotate(middle);
+        } else {
+            left.right = joinRight(c, middle, right);
+        }
+        update(left);
+        return (getBalanceFactor(left) < -1) ? leftRotate(left) : left;
+    }
+
+    /**
+     * Mirror image of joinRight() for a right tree taller than the left one.
+     */
+    private Node joinLeft(Node left, Node middle, Node right) {
+        Node c = right.left;
+        if (height(c) <= height(left) + 1) {
+            middle.left = left;
+            middle.right = c;
+            update(middle);
+            right.left = (height(middle) <= height(right.right) + 1) ? middle : leftRotate(middle);
+        } else {
+            right.left = joinLeft(left, middle, c);
+        }
+        update(right);
+        return (getBalanceFactor(right) > 1) ? rightRotate(right) : right;
+    }
+
+    /**
+     * Joins two trees where every key in `left` is smaller than every key in
+     * `right`, using the largest node of `left` as the middle.
+     */
+    private Node join2(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        Split last = splitLast(left);
+        return join(last.left, last.middle, right);
+    }
+
+    private Split splitLast(Node node) {
+        Node left = node.left;
+        Node right = node.right;
+        if (right == null) {
+            return new Split(left, node, null);
+        }
+        Split last = splitLast(right);
+        return new Split(join(left, node, last.left), last.middle, null);
+    }
+
+    /**
+     * Splits the tree at `node` around `word` in O(log n). The nodes are reused,
+     * so the tree must not be used afterwards except through the result.
+     */
+    private Split split(Node node, Key word) {
+        if (node == null) {
+            return new Split(null, null, null);
+        }
+        Node left = node.left;
+        Node right = node.right;
+        int cmp = word.compareTo(node.word);
+        if (cmp == 0) {
+            return new Split(left, node, right);
+        }
+        if (cmp < 0) {
+            Split s = split(left, word);
+            return new Split(s.left, s.middle, join(s.right, node, right));
+        }
+        Split s = split(right, word);
+        return new Split(join(left, node, s.left), s.middle, s.right);
+    }
+
+    private static final int COPY = 0, UNION = 1, INTERSECTION = 2, DIFFERENCE = 3;
+
+    /**
+     * One recursive step of a set operation on two trees that the operation owns.
+     * The two halves of a large enough problem are forked onto the pool.
+     */
+    private class SetOperation extends RecursiveTask<Node> {
+        private static final long serialVersionUID = 1L;
+
+        private final int op;
+        private final transient Node a, b; // tasks are never serialized; Node is not Serializable
+        private transient Node leftHalf, rightHalf; // results of both()
+
+        SetOperation(int op, Node a, Node b) {
+            this.op = op;
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        protected Node compute() {
+            switch (op) {
+                case COPY:
+                    return copy();
+                case UNION:
+                    return union();
+                case INTERSECTION:
+                    return intersection();
+                default:
+                    return difference();
+            }
+        }
+
+        /**
+         * Runs the sub-operations on (al, bl) and (ar, br) into leftHalf and
+         * rightHalf, in parallel when the subproblem is large enough.
+         */
+        private void both(Node al, Node bl, Node ar, Node br) {
+            SetOperation left = new SetOperation(op, al, bl);
+            SetOperation right = new SetOperation(op, ar, br);
+            if (size(a) + size(b) < PARALLEL_THRESHOLD) {
+                leftHalf = left.compute();
+                rightHalf = right.compute();
+            } else {
+                left.fork();
+                rightHalf = right.compute();
+                leftHalf = left.join();
+            }
+        }
+
+        private Node copy() {
+            if (a == null) {
+                return null;
+            }
+            both(a.left, null, a.right, null);
+            Node node = new Node(a.word);
+            node.left = leftHalf;
+            node.right = rightHalf;
+            update(node);
+            return node;
+        }
+
+        private Node union() {
+            if (a == null) {
+                return b;
+            }
+            if (b == null) {
+                return a;
+            }
+            Node al = a.left;
+            Node ar = a.right;
+            Split s = split(b, a.word);
+            both(al, s.left, ar, s.right);
+            return AVLTree.this.join(leftHalf, a, rightHalf);
+        }
+
+        private Node intersection() {
+            if (a == null || b == null) {
+                return null;
+            }
+            Node al = a.left;
+            Node ar = a.right;
+            Split s = split(b, a.word);
+            both(al, s.left, ar, s.right);
+            return (s.middle != null) ? AVLTree.this.join(leftHalf, a, rightHalf) : join2(leftHalf, rightHalf);
+        }
+
+        private Node difference() {
+            if (a == null || b == null) {
+                return a;
+            }
+            Node bl = b.left;
+            Node br = b.right;
+            Split s = split(a, b.word);
+            both(s.left, bl, s.right, br);
+            return join2(leftHalf, rightHalf);
+        }
+    }
+
+    /**
+     * Runs `op` on private copies of both trees, so neither input is changed
+     * and the result shares no nodes with them. split and join relink nodes in
+     * place, and every tree here can still be modified afterwards.
+     */
+    private AVLTree<Key> setOperation(int op, AVLTree<Key> other) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        Node a = pool.invoke(new SetOperation(COPY, root, null));
+        Node b = pool.invoke(new SetOperation(COPY, other.root, null));
+        AVLTree<Key> result = new AVLTree<>();
+        result.root = pool.invoke(new SetOperation(op, a, b));
+        return result;
+    }
+
+    /**
+     * Words in this tree or in `other`, for trees of sizes m <= n. Both trees
+     * are copied first, which takes O(n + m) work and dominates the total. The
+     * split/join recursion on the copies adds only O(m log(n/m + 1)), so a
+     * small tree is merged into a large one without any comparisons against
+     * most of its keys. The copies and every step of the recursion run in
+     * parallel on the common ForkJoinPool.
+     */
+    public AVLTree<Key> union(AVLTree<Key> other) {
+        return setOperation(UNION, other);
+    }
+
+    /**
+     * Words in both this tree and `other`; see {@link #union}.
+     */
+    public AVLTree<Key> intersection(AVLTree<Key> other) {
+        return setOperation(INTERSECTION, other);
+    }
+
+    /**
+     * Words in this tree but not in `other`; see {@link #union}.
+     */
+    public AVLTree<Key> difference(AVLTree<Key> other) {
+        return setOperation(DIFFERENCE, other);
+    }
+
     private Node findMin(Node node) { // helper to find the node with the minimum key in a subtree.
         while (node.left != null) {
             node = node.left;
@@ -185,15 +599,247 @@ public class AVLTree<Key extends Comparable> {
         return node;
     }
 
-    public void treeWalk() { // inorder traversal
-        treeWalkHelper(root);
+    // --> iteration <--
+
+    /**
+     * Lazy in-order cursor over the words in [lo, hi) or [lo, hi], with an
+     * explicit stack instead of recursion. A null bound is open. The cursor
+     * seeks to `lo` in O(log n) and then yields each word in amortized O(1).
+     */
+    private class Cursor implements Iterator<Key> {
+        private final ArrayDeque<Node> stack = new ArrayDeque<>();
+        private final Key hi;
+        private final boolean hiInclusive;
+
+        Cursor(Key lo, Key hi, boolean hiInclusive) {
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            Node node = root;
+            while (node != null) { // stack every node on the search path that is >= lo
+                if (lo == null || lo.compareTo(node.word) <= 0) {
+                    stack.push(node);
+                    node = node.left;
+                } else {
+                    node = node.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (stack.isEmpty()) {
+                return false;
+            }
+            if (hi == null) {
+                return true;
+            }
+            int cmp = stack.peek().word.compareTo(hi);
+            return cmp < 0 || (cmp == 0 && hiInclusive);
+        }
+
+        /**
+         * The word next() would return, without advancing.
+         */
+        Key peek() {
+            return stack.peek().word;
+        }
+
+        @Override
+        public Key next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Node node = stack.pop();
+            for (Node n = node.right; n != null; n = n.left) {
+                stack.push(n);
+            }
+            return node.word;
+        }
+    }
+
+    /**
+     * Iterates all words in order.
+     */
+    @Override
+    public Iterator<Key> iterator() {
+        return new Cursor(null, null, false);
+    }
+
+    /**
+     * Iterates the words `w` with lo <= w <= hi in order, after an O(log n) seek to `lo`.
+     */
+    public Iterator<Key> range(Key lo, Key hi) {
+        return new Cursor(lo, hi, true);
+    }
+
+    // --> prefix queries <--
+
+    /**
+     * Iterates, in order, up to `limit` words starting with `prefix`. The words
+     * must be Strings. The scan seeks to the first word >= prefix in O(log n),
+     * then yields matches lazily and stops at the first word that does not
+     * match, since all words with a prefix are adjacent in order.
+     */
+    @SuppressWarnings("unchecked")
+    public Iterator<Key> prefixScan(String prefix, int limit) {
+        Cursor cursor = new Cursor((Key) prefix, null, false);
+        return new Iterator<Key>() {
+            private int returned;
+
+            @Override
+            public boolean hasNext() {
+                return returned < limit && cursor.hasNext() && ((String) cursor.peek()).startsWith(prefix);
+            }
+
+            @Override
+            public Key next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                returned++;
+                return cursor.next();
+            }
+        };
+    }
+
+    /**
+     * Keeps a {@link PrefixIndex} of the words from now on, built from the
+     * current words and updated by treeInsert and treeRemove, so complete()
+     * costs O(|prefix|) instead of O(log n) string comparisons. The words must
+     * be Strings. Trees built from this one (union, fromSorted, load, ...) do
+     * not inherit the index.
+     */
+    public void enablePrefixIndex() {
+        PrefixIndex index = new PrefixIndex();
+        for (Key word : this) {
+            index.add((String) word);
+        }
+        prefixIndex = index;
+    }
+
+    /**
+     * Up to `limit` words starting with `prefix`, in order: from the prefix
+     * index if it is enabled, otherwise from prefixScan.
+     */
+    public List<String> complete(String prefix, int limit) {
+        if (prefixIndex != null) {
+            return prefixIndex.complete(prefix, limit);
+        }
+        List<String> matches = new ArrayList<>();
+        for (Iterator<Key> it = prefixScan(prefix, limit); it.hasNext(); ) {
+            matches.add((String) it.next());
+        }
+        return matches;
+    }
+
+    /**
+     * Number of words in [lo, hi), with null bounds open, from two rank() lookups.
+     */
+    private long count(Key lo, Key hi) {
+        return ((hi == null) ? size(root) : rank(hi)) - ((lo == null) ? 0 : rank(lo));
+    }
+
+    /**
+     * Spliterator over the words in [lo, hi). It splits at the highest node
+     * strictly inside its range, which on an AVL tree halves the range roughly
+     * evenly, and it knows the exact size of both halves from the subtree sizes.
+     */
+    private class TreeSpliterator implements Spliterator<Key> {
+        private Key lo, hi;
+        private Cursor cursor; // created once traversal starts, after which it no longer splits
+        private long remaining; // words left once the cursor exists
+
+        TreeSpliterator(Key lo, Key hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        public Spliterator<Key> trySplit() {
+            if (cursor != null) {
+                return null;
+            }
+            Node node = root;
+            while (node != null) {
+                if (lo != null && node.word.compareTo(lo) <= 0) {
+                    node = node.right;
+                } else if (hi != null && node.word.compareTo(hi) >= 0) {
+                    node = node.left;
+                } else {
+                    TreeSpliterator prefix = new TreeSpliterator(lo, node.word);
+                    lo = node.word;
+                    return prefix;
+                }
+            }
+            return null;
+        }
+
+        private void start() {
+            if (cursor == null) {
+                remaining = count(lo, hi);
+                cursor = new Cursor(lo, hi, false);
+            }
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Key> action) {
+            start();
+            if (!cursor.hasNext()) {
+                return false;
+            }
+            remaining--;
+            action.accept(cursor.next());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Key> action) {
+            start();
+            while (cursor.hasNext()) {
+                remaining--;
+                action.accept(cursor.next());
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return (cursor == null) ? count(lo, hi) : remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | SORTED | NONNULL | SIZED | SUBSIZED;
+        }
+
+        @Override
+        public Comparator<? super Key> getComparator() {
+            return null; // natural order
+        }
+    }
+
+    @Override
+    public Spliterator<Key> spliterator() {
+        return new TreeSpliterator(null, null);
+    }
+
+    /**
+     * Sequential stream of the words in order.
+     */
+    public Stream<Key> stream() {
+        return StreamSupport.stream(spliterator(), false);
     }
 
-    private void treeWalkHelper(Node node) {
-        if (node == null) return;
-        treeWalkHelper(node.left);
-        System.out.printf("%s%n", node.word);
-        treeWalkHelper(node.right);
+    /**
+     * Parallel stream of the words; the spliterator hands out whole subtrees.
+     */
+    public Stream<Key> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    public void treeWalk() { // inorder traversal
+        for (Key word : this) {
+            System.out.printf("%s%n", word);
+        }
     }
 
     public void printTree() {
@@ -223,6 +869,13 @@ public class AVLTree<Key extends Comparable> {
             System.out.println("3. Delete word");
             System.out.println("4. Tree walk");
             System.out.println("5. Print tree");
+            System.out.println("6. Rank of word");
+            System.out.println("7. Select k-th word");
+            System.out.println("8. Count words in range");
+            System.out.println("9. Load words from file");
+            System.out.println("10. Save snapshot");
+            System.out.println("11. Load snapshot");
+            System.out.println("12. Complete prefix");
             System.out.println("0. Exit");
             System.out.print("Enter your choice: ");
 
@@ -280,6 +933,77 @@ public class AVLTree<Key extends Comparable> {
                     avl.printTree();
                     break;
 
+                case 6:
+                    System.out.print("Enter word: ");
+                    word = scanner.nextLine().trim().toLowerCase();
+                    if (word.isEmpty()) continue;
+                    System.out.println(avl.rank(word) + " of " + avl.size() + " words are smaller than '" + word + "'.");
+                    break;
+
+                case 7:
+                    System.out.print("Enter k (0-based): ");
+                    try {
+                        int k = Integer.parseInt(scanner.nextLine().trim());
+                        System.out.println("Word " + k + " is '" + avl.select(k) + "'.");
+                    } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                        System.out.println("Invalid k: " + e.getMessage());
+                    }
+                    break;
+
+                case 8:
+                    System.out.print("Enter lower word: ");
+                    String lo = scanner.nextLine().trim().toLowerCase();
+                    System.out.print("Enter upper word: ");
+                    String hi = scanner.nextLine().trim().toLowerCase();
+                    System.out.println(avl.countRange(lo, hi) + " words between '" + lo + "' and '" + hi + "'.");
+                    break;
+
+                case 9:
+                    System.out.print("Enter file to load: ");
+                    String file = scanner.nextLine().trim();
+                    if (file.isEmpty()) continue;
+                    try {
+                        long start = System.nanoTime();
+                        long loaded = WordIngest.ingest(avl, Path.of(file));
+                        double seconds = (System.nanoTime() - start) / 1e9;
+                        System.out.printf("Loaded %d words (%.0f words/sec), %d distinct in the tree.%n",
+                                loaded, loaded / seconds, avl.size());
+                    } catch (IOException | InvalidPathException e) {
+                        System.out.println("Could not read '" + file + "': " + e.getMessage());
+                    }
+                    break;
+
+                case 10:
+                    System.out.print("Enter snapshot file to write: ");
+                    String target = scanner.nextLine().trim();
+                    if (target.isEmpty()) continue;
+                    try {
+                        avl.save(Path.of(target));
+                        System.out.println("Saved " + avl.size() + " words to '" + target + "'.");
+                    } catch (IOException | InvalidPathException e) {
+                        System.out.println("Could not write '" + target + "': " + e.getMessage());
+                    }
+                    break;
+
+                case 11:
+                    System.out.print("Enter snapshot file to load: ");
+                    String source = scanner.nextLine().trim();
+                    if (source.isEmpty()) continue;
+                    try {
+                        long start = System.nanoTime();
+                        avl = AVLTree.load(Path.of(source));
+                        System.out.printf("Loaded %d words in %.3f s.%n", avl.size(), (System.nanoTime() - start) / 1e9);
+                    } catch (IOException | InvalidPathException e) {
+                        System.out.println("Could not load '" + source + "': " + e.getMessage());
+                    }
+                    break;
+
+                case 12:
+                    System.out.print("Enter prefix: ");
+                    String prefix = scanner.nextLine().trim().toLowerCase();
+                    System.out.println(avl.complete(prefix, 10));
+                    break;
+
                 case 0:
                     running = false;
                     System.out.println("Exiting...");
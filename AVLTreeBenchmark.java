@@ -0,0 +1,209 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Compares the pointer-based AVLTree with the array-backed ArrayAVLTree on the
+ * same churn workload, reporting wall-clock time, bytes allocated by the
+ * benchmark thread, and the collections and GC time it caused. Also times
+ * merging two trees with union() against inserting one into the other.
+ *
+ * The keys are boxed once up front so both trees see identical objects and
+ * only the trees' own allocations are measured.
+ *
+ * Usage: java AVLTreeBenchmark [keys]
+ */
+public class AVLTreeBenchmark {
+    private static final int WARMUP_ROUNDS = 3;
+    private static volatile int sink; // keeps search results observable so they are not optimized away
+
+    /**
+     * The operations both trees support, so one workload can drive either.
+     */
+    private interface Ops {
+        void insert(Integer key);
+        int search(Integer key);
+        void remove(Integer key);
+    }
+
+    private static Ops pointerTree() {
+        AVLTree<Integer> tree = new AVLTree<>();
+        return new Ops() {
+            @Override
+            public void insert(Integer key) {
+                tree.treeInsert(key);
+            }
+
+            @Override
+            public int search(Integer key) {
+                return tree.treeSearch(key);
+            }
+
+            @Override
+            public void remove(Integer key) {
+                tree.treeRemove(key);
+            }
+        };
+    }
+
+    private static Ops arrayTree(int capacity) {
+        ArrayAVLTree<Integer> tree = new ArrayAVLTree<>(capacity);
+        return new Ops() {
+            @Override
+            public void insert(Integer key) {
+                tree.treeInsert(key);
+            }
+
+            @Override
+            public int search(Integer key) {
+                return tree.treeSearch(key);
+            }
+
+            @Override
+            public void remove(Integer key) {
+                tree.treeRemove(key);
+            }
+        };
+    }
+
+    /**
+     * Fills the tree, then runs rounds that remove half of the keys, search all
+     * of them, and insert the removed half again.
+     */
+    private static void churn(Ops tree, Integer[] keys, int rounds) {
+        for (Integer key : keys) {
+            tree.insert(key);
+        }
+        int hits = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (int i = round & 1; i < keys.length; i += 2) {
+                tree.remove(keys[i]);
+            }
+            for (Integer key : keys) {
+                hits += tree.search(key);
+            }
+            for (int i = round & 1; i < keys.length; i += 2) {
+                tree.insert(keys[i]);
+            }
+        }
+        sink = hits;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * Bytes allocated so far by the current thread, or -1 if the JVM cannot tell.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static void measure(String name, Supplier<Ops> factory, Integer[] keys, int rounds) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            churn(factory.get(), keys, 1);
+        }
+        System.gc();
+
+        long gcs = gcCount();
+        long gcTime = gcMillis();
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        churn(factory.get(), keys, rounds);
+        double ms = (System.nanoTime() - start) / 1_000_000.0;
+        allocated = (allocated < 0) ? -1 : allocatedBytes() - allocated;
+
+        System.out.printf("%-16s: %10.2f ms  %10.1f MB allocated  %4d GCs  %6d ms in GC%n",
+                name, ms, allocated / (1024.0 * 1024.0), gcCount() - gcs, gcMillis() - gcTime);
+    }
+
+    /**
+     * Merging two dictionaries of `count` words each (half of them shared): one
+     * treeInsert per word against the parallel join-based union().
+     */
+    static void unionVsInsert(Integer[] keys) {
+        AVLTree<Integer> a = new AVLTree<>();
+        AVLTree<Integer> b = new AVLTree<>();
+        for (int i = 0; i < keys.length; i++) {
+            if (i % 4 != 3) {
+                a.treeInsert(keys[i]);
+            }
+            if (i % 4 != 0) {
+                b.treeInsert(keys[i]);
+            }
+        }
+
+        double insertMs = 0;
+        double unionMs = 0;
+        int merged = 0;
+        for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+            AVLTree<Integer> target = a.union(new AVLTree<>()); // a copy of a
+            long start = System.nanoTime();
+            for (int i = 0; i < keys.length; i++) {
+                if (i % 4 != 0) {
+                    target.treeInsert(keys[i]);
+                }
+            }
+            insertMs = (System.nanoTime() - start) / 1_000_000.0;
+
+            start = System.nanoTime();
+            AVLTree<Integer> union = a.union(b);
+            unionMs = (System.nanoTime() - start) / 1_000_000.0;
+            merged = union.size();
+            if (merged != target.size()) {
+                throw new IllegalStateException("union() has " + merged + " words, inserting gave " + target.size());
+            }
+        }
+
+        System.out.printf("%-24s: %10.2f ms%n", "treeInsert() per word", insertMs);
+        System.out.printf("%-24s: %10.2f ms  (%.1fx faster, %d cores, %d words)%n", "union()", unionMs,
+                insertMs / unionMs, Runtime.getRuntime().availableProcessors(), merged);
+    }
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int rounds = 5;
+        Integer[] keys = new Integer[count];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < count; i++) {
+            keys[i] = i;
+        }
+        for (int i = count - 1; i > 0; i--) { // shuffle so inserts land all over the tree
+            int j = random.nextInt(i + 1);
+            Integer tmp = keys[i];
+            keys[i] = keys[j];
+            keys[j] = tmp;
+        }
+
+        System.out.println("==============================================");
+        System.out.println("= AVL churn: " + count + " keys, " + rounds + " remove/search/insert rounds");
+        System.out.println("==============================================");
+        measure("AVLTree", AVLTreeBenchmark::pointerTree, keys, rounds);
+        measure("ArrayAVLTree", () -> arrayTree(count), keys, rounds);
+        System.out.println();
+
+        System.out.println("==============================================");
+        System.out.println("= Merging two sets of " + count * 3 / 4 + " words");
+        System.out.println("==============================================");
+        unionVsInsert(keys);
+    }
+}
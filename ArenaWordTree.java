@@ -0,0 +1,416 @@
+import java.lang.ref.Reference;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Word-counting AVL tree specialized for words, with no String or node objects.
+ *
+ * Every distinct word is interned once, as UTF-8, into one contiguous byte
+ * arena, and a node refers to it by offset and length. Nodes are int slots in
+ * parallel arrays, as in {@link ArrayAVLTree}, and the counters are longs, so
+ * they do not overflow on large corpora the way BinarySearchTree's int
+ * counters can. Keys are compared as unsigned bytes with
+ * Arrays.compareUnsigned, which stops at the first differing byte and needs
+ * no virtual compareTo call. Unsigned UTF-8 byte order is Unicode code point
+ * order. That matches String order except for characters outside the Basic
+ * Multilingual Plane.
+ *
+ * When a word's count drops to zero its slot is reused, but its bytes stay in
+ * the arena, which only ever grows (up to 2 GiB).
+ */
+public class ArenaWordTree {
+    private static final int NIL = -1;
+
+    private byte[] arena;
+    private int arenaUsed;
+
+    private int[] offset; // where the slot's word starts in the arena
+    private int[] length; // its length in bytes
+    private long[] count;
+    private int[] left;
+    private int[] right;
+    private int[] height;
+    private int root = NIL;
+    private int freeHead = NIL; // first free slot; free slots are linked through left[]
+    private int used; // slots [0, used) have been handed out at least once
+    private int size;
+
+    public ArenaWordTree() {
+        this(16, 256);
+    }
+
+    /**
+     * @param capacity Number of distinct words to make room for up front.
+     * @param arenaBytes Bytes of word text to make room for up front.
+     */
+    public ArenaWordTree(int capacity, int arenaBytes) {
+        capacity = Math.max(capacity, 1);
+        arena = new byte[Math.max(arenaBytes, 16)];
+        offset = new int[capacity];
+        length = new int[capacity];
+        count = new long[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        height = new int[capacity];
+    }
+
+    // --> slot and arena management <--
+    private int allocate(byte[] word, int from, int len) {
+        int slot;
+        if (freeHead != NIL) {
+            slot = freeHead;
+            freeHead = left[slot];
+        } else {
+            if (used == offset.length) {
+                grow();
+            }
+            slot = used++;
+        }
+        offset[slot] = intern(word, from, len);
+        length[slot] = len;
+        count[slot] = 1;
+        left[slot] = NIL;
+        right[slot] = NIL;
+        height[slot] = 0; // leaf node has height 0
+        size++;
+        return slot;
+    }
+
+    private void release(int slot) {
+        left[slot] = freeHead;
+        freeHead = slot;
+        size--;
+    }
+
+    private void grow() {
+        int capacity = offset.length * 2;
+        offset = Arrays.copyOf(offset, capacity);
+        length = Arrays.copyOf(length, capacity);
+        count = Arrays.copyOf(count, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        height = Arrays.copyOf(height, capacity);
+    }
+
+    private int intern(byte[] word, int from, int len) {
+        if (len > arena.length - arenaUsed) {
+            long needed = (long) arenaUsed + len;
+            if (needed > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Word arena is full (" + arenaUsed + " bytes).");
+            }
+            arena = Arrays.copyOf(arena, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(needed, 2L * arena.length)));
+        }
+        System.arraycopy(word, from, arena, arenaUsed, len);
+        arenaUsed += len;
+        return arenaUsed - len;
+    }
+
+    private int compare(byte[] word, int from, int len, int slot) {
+        return Arrays.compareUnsigned(word, from, from + len, arena, offset[slot], offset[slot] + length[slot]);
+    }
+
+    private static byte[] utf8(String word) {
+        return word.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The word stored in `slot`, decoded.
+     */
+    private String word(int slot) {
+        return new String(arena, offset[slot], length[slot], StandardCharsets.UTF_8);
+    }
+
+    // --> core AVL helper functions <--
+    private int height(int node) {
+        return (node == NIL) ? -1 : height[node];
+    }
+
+    private void updateHeight(int node) {
+        height[node] = 1 + Math.max(height(left[node]), height(right[node]));
+    }
+
+    private int getBalanceFactor(int node) {
+        return (node == NIL) ? 0 : height(left[node]) - height(right[node]);
+    }
+
+    private int rightRotate(int node) {
+        int x = left[node];
+        int T2 = right[x];
+
+        right[x] = node;
+        left[node] = T2;
+
+        updateHeight(node);
+        updateHeight(x);
+
+        return x;
+    }
+
+    private int leftRotate(int node) {
+        int x = right[node];
+        int T2 = left[x];
+
+        left[x] = node;
+        right[node] = T2;
+
+        updateHeight(node);
+        updateHeight(x);
+
+        return x;
+    }
+
+    /**
+     * Restores the AVL balance at `node` after one of its subtrees changed.
+     */
+    private int rebalance(int node) {
+        updateHeight(node);
+
+        int balance = getBalanceFactor(node);
+
+        // LL Case
+        if (balance > 1 && getBalanceFactor(left[node]) >= 0) {
+            return rightRotate(node);
+        }
+
+        // LR Case
+        if (balance > 1 && getBalanceFactor(left[node]) < 0) {
+            left[node] = leftRotate(left[node]);
+            return rightRotate(node);
+        }
+
+        // RR Case
+        if (balance < -1 && getBalanceFactor(right[node]) <= 0) {
+            return leftRotate(node);
+        }
+
+        // RL Case
+        if (balance < -1 && getBalanceFactor(right[node]) > 0) {
+            right[node] = rightRotate(right[node]);
+            return leftRotate(node);
+        }
+
+        return node;
+    }
+
+    // --> counting <--
+
+    /**
+     * Counts one more occurrence of `word`.
+     * @return the number of occurrences before this one
+     */
+    public long treeInsert(String word) {
+        byte[] bytes = utf8(word);
+        return treeInsert(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Counts one more occurrence of the UTF-8 word in word[from, from + len).
+     * The bytes are copied into the arena only if the word is new.
+     * @return the number of occurrences before this one
+     */
+    public long treeInsert(byte[] word, int from, int len) {
+        long[] beforeCount = new long[1];
+        root = insert(root, word, from, len, beforeCount);
+        return beforeCount[0];
+    }
+
+    private int insert(int node, byte[] word, int from, int len, long[] beforeCount) {
+        if (node == NIL) {
+            return allocate(word, from, len);
+        }
+        int cmp = compare(word, from, len, node);
+        if (cmp == 0) {
+            beforeCount[0] = count[node]++;
+            return node;
+        }
+        // assign through a local: insert() may grow the arrays, and `left[node] = insert(...)`
+        // would store into the old array since Java evaluates the array reference first
+        if (cmp < 0) {
+            int child = insert(left[node], word, from, len, beforeCount);
+            left[node] = child;
+        } else {
+            int child = insert(right[node], word, from, len, beforeCount);
+            right[node] = child;
+        }
+        return rebalance(node);
+    }
+
+    /**
+     * @return how many times `word` has been counted, or 0
+     */
+    public long treeSearch(String word) {
+        byte[] bytes = utf8(word);
+        return treeSearch(bytes, 0, bytes.length);
+    }
+
+    public long treeSearch(byte[] word, int from, int len) {
+        int current = root;
+        while (current != NIL) {
+            int cmp = compare(word, from, len, current);
+            if (cmp < 0) {
+                current = left[current];
+            } else if (cmp > 0) {
+                current = right[current];
+            } else {
+                return count[current];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Removes one occurrence of `word`.
+     * @return the number of occurrences before the removal, or 0 if it was not there
+     */
+    public long treeRemove(String word) {
+        byte[] bytes = utf8(word);
+        long[] beforeCount = new long[1];
+        root = remove(root, bytes, 0, bytes.length, beforeCount);
+        return beforeCount[0];
+    }
+
+    private int remove(int node, byte[] word, int from, int len, long[] beforeCount) {
+        if (node == NIL) {
+            return NIL; // Word not found
+        }
+
+        int cmp = compare(word, from, len, node);
+        if (cmp < 0) {
+            left[node] = remove(left[node], word, from, len, beforeCount);
+        } else if (cmp > 0) {
+            right[node] = remove(right[node], word, from, len, beforeCount);
+        } else {
+            beforeCount[0] = count[node];
+            if (count[node] > 1) { // word has duplicates. decrement the counter.
+                count[node]--;
+                return node;
+            }
+            if (left[node] == NIL || right[node] == NIL) {
+                int child = (left[node] != NIL) ? left[node] : right[node];
+                release(node);
+                return child; // the child subtree is already balanced
+            }
+            // take over the in-order successor's word and count, then unlink the successor
+            int successor = right[node];
+            while (left[successor] != NIL) {
+                successor = left[successor];
+            }
+            offset[node] = offset[successor];
+            length[node] = length[successor];
+            count[node] = count[successor];
+            right[node] = removeMin(right[node]);
+        }
+
+        return rebalance(node);
+    }
+
+    private int removeMin(int node) {
+        if (left[node] == NIL) {
+            int child = right[node];
+            release(node);
+            return child;
+        }
+        left[node] = removeMin(left[node]);
+        return rebalance(node);
+    }
+
+    /**
+     * Number of distinct words.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Bytes of word text held in the arena, including that of removed words.
+     */
+    public int arenaBytes() {
+        return arenaUsed;
+    }
+
+    public void treeWalk() { // inorder traversal
+        treeWalkHelper(root);
+    }
+
+    private void treeWalkHelper(int node) {
+        if (node == NIL) return;
+        treeWalkHelper(left[node]);
+        System.out.printf("%s(%d)%n", word(node), count[node]);
+        treeWalkHelper(right[node]);
+    }
+
+    // --> memory footprint comparison <--
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void footprint(String name, int words, Supplier<Object> build) {
+        long before = usedHeap();
+        Object tree = build.get();
+        long after = usedHeap();
+        Reference.reachabilityFence(tree); // the tree must still be live when the heap is measured
+        System.out.printf("%-28s: %8.1f MB  %6.1f bytes/word%n", name, (after - before) / (1024.0 * 1024.0),
+                (after - before) / (double) words);
+    }
+
+    /**
+     * Words are built from bytes as WordIngest does, so every tree owns its own
+     * String copies and their heap share is part of its footprint.
+     */
+    private static String[] freshCopies(byte[][] words) {
+        String[] copies = new String[words.length];
+        for (int i = 0; i < words.length; i++) {
+            copies[i] = new String(words[i], StandardCharsets.ISO_8859_1);
+        }
+        return copies;
+    }
+
+    public static void main(String[] args) {
+        ArenaWordTree demo = new ArenaWordTree();
+        for (String word : "the cat and the hat and the bat".split(" ")) {
+            demo.treeInsert(word);
+        }
+        demo.treeRemove("bat");
+        System.out.println("Counts after removing 'bat':");
+        demo.treeWalk();
+
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        byte[][] words = new byte[n][];
+        Random random = new Random(1);
+        for (int i = 0; i < n; i++) {
+            byte[] word = new byte[4 + random.nextInt(8)]; // 4-11 letters, roughly English word lengths
+            for (int j = 0; j < word.length; j++) {
+                word[j] = (byte) ('a' + random.nextInt(26));
+            }
+            words[i] = word;
+        }
+        System.out.println("\nHeap held by " + n + " distinct words of 4-11 letters:");
+        footprint("AVLTree<String>", n, () -> {
+            AVLTree<String> tree = new AVLTree<>();
+            for (String word : freshCopies(words)) {
+                tree.treeInsert(word);
+            }
+            return tree;
+        });
+        footprint("BinarySearchTree<String>", n, () -> {
+            BinarySearchTree<String> tree = new BinarySearchTree<>();
+            for (String word : freshCopies(words)) {
+                tree.treeInsert(word);
+            }
+            return tree;
+        });
+        footprint("ArenaWordTree", n, () -> {
+            ArenaWordTree tree = new ArenaWordTree(); // grown on demand like the others, slack included
+            for (byte[] word : words) {
+                tree.treeInsert(word, 0, word.length);
+            }
+            return tree;
+        });
+    }
+}
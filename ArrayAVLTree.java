@@ -0,0 +1,326 @@
+import java.util.Arrays;
+
+/**
+ * {@link AVLTree} with the same public API, but with its nodes kept in parallel
+ * arrays instead of one object per node (struct-of-arrays). A node is an int
+ * slot: keys[slot] holds the word and left/right/height/size hold the rest, with
+ * NIL (-1) in place of null.
+ *
+ * Slots freed by treeRemove go on a free list threaded through `left` and are
+ * reused by the next insert, so once the arrays have grown to the working-set
+ * size, treeInsert, treeSearch and treeRemove allocate nothing.
+ */
+public class ArrayAVLTree<Key extends Comparable> {
+    private static final int NIL = -1;
+
+    private Object[] keys;
+    private int[] left;
+    private int[] right;
+    private int[] height;
+    private int[] size; // number of nodes in the subtree rooted at the slot
+    private int root = NIL;
+    private int freeHead = NIL; // first free slot; free slots are linked through left[]
+    private int used; // slots [0, used) have been handed out at least once
+
+    public ArrayAVLTree() {
+        this(16);
+    }
+
+    /**
+     * @param capacity Number of nodes to make room for up front.
+     */
+    public ArrayAVLTree(int capacity) {
+        capacity = Math.max(capacity, 1);
+        keys = new Object[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        height = new int[capacity];
+        size = new int[capacity];
+    }
+
+    // --> slot management <--
+    private int allocate(Key word) {
+        int slot;
+        if (freeHead != NIL) {
+            slot = freeHead;
+            freeHead = left[slot];
+        } else {
+            if (used == keys.length) {
+                grow();
+            }
+            slot = used++;
+        }
+        keys[slot] = word;
+        left[slot] = NIL;
+        right[slot] = NIL;
+        height[slot] = 0; // leaf node has height 0
+        size[slot] = 1;
+        return slot;
+    }
+
+    private void release(int slot) {
+        keys[slot] = null; // let the key be collected
+        left[slot] = freeHead;
+        freeHead = slot;
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        height = Arrays.copyOf(height, capacity);
+        size = Arrays.copyOf(size, capacity);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Key key(int slot) {
+        return (Key) keys[slot];
+    }
+
+    // --> core AVL helper functions <--
+    private int height(int node) {
+        return (node == NIL) ? -1 : height[node];
+    }
+
+    private int size(int node) {
+        return (node == NIL) ? 0 : size[node];
+    }
+
+    private void update(int node) { // recompute height and subtree size from the children
+        height[node] = 1 + Math.max(height(left[node]), height(right[node]));
+        size[node] = 1 + size(left[node]) + size(right[node]);
+    }
+
+    private int getBalanceFactor(int node) {
+        return (node == NIL) ? 0 : height(left[node]) - height(right[node]);
+    }
+
+    private int rightRotate(int node) {
+        int x = left[node];
+        int T2 = right[x];
+
+        right[x] = node;
+        left[node] = T2;
+
+        update(node);
+        update(x);
+
+        return x;
+    }
+
+    private int leftRotate(int node) {
+        int x = right[node];
+        int T2 = left[x];
+
+        left[x] = node;
+        right[node] = T2;
+
+        update(node);
+        update(x);
+
+        return x;
+    }
+
+    /**
+     * Restores the AVL balance at `node` after one of its subtrees changed.
+     */
+    private int rebalance(int node) {
+        update(node);
+
+        int balance = getBalanceFactor(node);
+
+        // LL Case
+        if (balance > 1 && getBalanceFactor(left[node]) >= 0) {
+            return rightRotate(node);
+        }
+
+        // LR Case
+        if (balance > 1 && getBalanceFactor(left[node]) < 0) {
+            left[node] = leftRotate(left[node]);
+            return rightRotate(node);
+        }
+
+        // RR Case
+        if (balance < -1 && getBalanceFactor(right[node]) <= 0) {
+            return leftRotate(node);
+        }
+
+        // RL Case
+        if (balance < -1 && getBalanceFactor(right[node]) > 0) {
+            right[node] = rightRotate(right[node]);
+            return leftRotate(node);
+        }
+
+        return node;
+    }
+
+    public void treeInsert(Key word) {
+        root = insert(root, word);
+    }
+
+    private int insert(int node, Key word) {
+        if (node == NIL) {
+            return allocate(word);
+        }
+        int cmp = word.compareTo(keys[node]);
+        if (cmp == 0) return node;
+        // assign through a local: insert() may grow the arrays, and `left[node] = insert(...)`
+        // would store into the old array since Java evaluates the array reference first
+        if (cmp < 0) {
+            int child = insert(left[node], word);
+            left[node] = child;
+        } else {
+            int child = insert(right[node], word);
+            right[node] = child;
+        }
+        return rebalance(node);
+    }
+
+    public int treeSearch(Key word) {
+        int current = root;
+        while (current != NIL) {
+            int cmp = word.compareTo(keys[current]);
+            if (cmp < 0) {
+                current = left[current];
+            } else if (cmp > 0) {
+                current = right[current];
+            } else {
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    public void treeRemove(Key word) {
+        root = remove(root, word);
+    }
+
+    private int remove(int node, Key word) {
+        if (node == NIL) {
+            return NIL; // Word not found
+        }
+
+        int cmp = word.compareTo(keys[node]);
+        if (cmp < 0) {
+            left[node] = remove(left[node], word);
+        } else if (cmp > 0) {
+            right[node] = remove(right[node], word);
+        } else {
+            if (left[node] == NIL || right[node] == NIL) {
+                int child = (left[node] != NIL) ? left[node] : right[node];
+                release(node);
+                return child; // the child subtree is already balanced
+            }
+            int temp = findMin(right[node]);
+            keys[node] = keys[temp];
+            // delete the in-order successor (rebalance the right subtree)
+            right[node] = remove(right[node], key(temp));
+        }
+
+        return rebalance(node);
+    }
+
+    private int findMin(int node) {
+        while (left[node] != NIL) {
+            node = left[node];
+        }
+        return node;
+    }
+
+    // --> order statistics <--
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Number of words strictly smaller than `word`, in O(log n).
+     */
+    public int rank(Key word) {
+        int rank = 0;
+        int current = root;
+        while (current != NIL) {
+            if (word.compareTo(keys[current]) <= 0) {
+                current = left[current];
+            } else {
+                rank += size(left[current]) + 1;
+                current = right[current];
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * The k-th smallest word, counting from 0, in O(log n).
+     */
+    public Key select(int k) {
+        if (k < 0 || k >= size(root)) {
+            throw new IndexOutOfBoundsException("Rank " + k + " is out of range for " + size(root) + " words.");
+        }
+        int current = root;
+        while (true) {
+            int leftSize = size(left[current]);
+            if (k < leftSize) {
+                current = left[current];
+            } else if (k > leftSize) {
+                k -= leftSize + 1;
+                current = right[current];
+            } else {
+                return key(current);
+            }
+        }
+    }
+
+    /**
+     * Number of words `w` with lo <= w <= hi, in O(log n).
+     */
+    public int countRange(Key lo, Key hi) {
+        if (lo.compareTo(hi) > 0) {
+            return 0;
+        }
+        return rank(hi) + treeSearch(hi) - rank(lo);
+    }
+
+    public void treeWalk() { // inorder traversal
+        treeWalkHelper(root);
+    }
+
+    private void treeWalkHelper(int node) {
+        if (node == NIL) return;
+        treeWalkHelper(left[node]);
+        System.out.printf("%s%n", keys[node]);
+        treeWalkHelper(right[node]);
+    }
+
+    public void printTree() {
+        printTree(root, 0);
+    }
+
+    private void printTree(int node, int level) {
+        if (node == NIL) { return; }
+        printTree(right[node], level + 1);
+        for (int i = 0; i < level; i++) {
+            System.out.print("      ");
+        }
+        System.out.println(keys[node] + " (h:" + height[node] + ", bf:" + getBalanceFactor(node) + ")");
+        printTree(left[node], level + 1);
+    }
+
+    public static void main(String[] args) {
+        ArrayAVLTree<String> avl = new ArrayAVLTree<>();
+        String[] words = {"mango", "apple", "kiwi", "banana", "cherry", "pear", "fig", "grape"};
+        for (String word : words) {
+            avl.treeInsert(word);
+        }
+        System.out.println("After inserting " + words.length + " words:");
+        avl.printTree();
+
+        avl.treeRemove("kiwi");
+        avl.treeRemove("apple");
+        avl.treeInsert("lemon"); // reuses a freed slot
+        System.out.println("\nAfter removing 'kiwi' and 'apple' and inserting 'lemon':");
+        avl.printTree();
+        System.out.println("\nIn order:");
+        avl.treeWalk();
+    }
+}
@@ -0,0 +1,434 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * B+ tree variant of {@link BTree}. Every key lives in a leaf, internal nodes only
+ * hold separator copies, and the leaves are linked left to right so a range scan
+ * descends once and then streams through the leaf chain.
+ */
+public class BPlusTree {
+    private Node root;
+    private LeafNode firstLeaf;
+    private final int m;
+    private final int maxKeys;
+    private final int minKeys;
+
+    private abstract class Node {
+        int[] keys = new int[maxKeys + 1]; // one spare slot while a node overflows before its split
+        int n; // number of keys currently in use
+
+        /**
+         * Finds the first index 'i' such that 'key <= keys[i]'.
+         */
+        int findKeyIndex(int key) {
+            int lo = 0;
+            int hi = n;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid] < key) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        abstract boolean isLeaf();
+
+        @Override
+        public String toString() {
+            return Arrays.toString(Arrays.copyOf(keys, n));
+        }
+    }
+
+    private class LeafNode extends Node {
+        LeafNode next;
+
+        @Override
+        boolean isLeaf() {
+            return true;
+        }
+    }
+
+    private class InternalNode extends Node {
+        Node[] children = new Node[maxKeys + 2];
+
+        @Override
+        boolean isLeaf() {
+            return false;
+        }
+
+        /**
+         * Child to follow for `key`. Separator keys equal the smallest key of their
+         * right subtree, so an exact match goes right.
+         */
+        int childIndex(int key) {
+            int i = findKeyIndex(key);
+            return (i < n && keys[i] == key) ? i + 1 : i;
+        }
+    }
+
+    /**
+     * Constructor for the B+ tree.
+     * @param m The order of the tree (maximum number of children per internal node)
+     */
+    public BPlusTree(int m) {
+        if (m < 3) {
+            throw new IllegalArgumentException("B+ Tree order must be at least 3.");
+        }
+        this.m = m;
+        this.maxKeys = m - 1;
+        this.minKeys = (int) Math.ceil(m / 2.0) - 1;
+        this.firstLeaf = new LeafNode();
+        this.root = firstLeaf;
+    }
+
+    /**
+     * Descends from the root to the leaf that would hold `key`.
+     */
+    private LeafNode findLeaf(int key) {
+        Node node = root;
+        while (!node.isLeaf()) {
+            InternalNode internal = (InternalNode) node;
+            node = internal.children[internal.childIndex(key)];
+        }
+        return (LeafNode) node;
+    }
+
+    /**
+     * Searches for a key in the B+ tree.
+     *
+     * @param key The integer key to search for.
+     * @return true if the key is found, false otherwise.
+     */
+    public boolean search(int key) {
+        LeafNode leaf = findLeaf(key);
+        int i = leaf.findKeyIndex(key);
+        return i < leaf.n && leaf.keys[i] == key;
+    }
+
+    /**
+     * Inserts a new key into the B+ tree. Duplicate keys are ignored.
+     *
+     * @param key The integer key to insert.
+     */
+    public void insert(int key) {
+        Node sibling = insert(root, key);
+        if (sibling != null) {
+            InternalNode newRoot = new InternalNode();
+            newRoot.keys[0] = separator(sibling);
+            newRoot.n = 1;
+            newRoot.children[0] = root;
+            newRoot.children[1] = sibling;
+            root = newRoot;
+        }
+    }
+
+    /**
+     * Inserts into the subtree rooted at `node`.
+     * @return the new right sibling if `node` had to split, null otherwise
+     */
+    private Node insert(Node node, int key) {
+        if (node.isLeaf()) {
+            LeafNode leaf = (LeafNode) node;
+            int i = leaf.findKeyIndex(key);
+            if (i < leaf.n && leaf.keys[i] == key) {
+                return null;
+            }
+            System.arraycopy(leaf.keys, i, leaf.keys, i + 1, leaf.n - i);
+            leaf.keys[i] = key;
+            leaf.n++;
+            return leaf.n > maxKeys ? splitLeaf(leaf) : null;
+        }
+
+        InternalNode internal = (InternalNode) node;
+        int i = internal.childIndex(key);
+        Node sibling = insert(internal.children[i], key);
+        if (sibling == null) {
+            return null;
+        }
+        System.arraycopy(internal.keys, i, internal.keys, i + 1, internal.n - i);
+        System.arraycopy(internal.children, i + 1, internal.children, i + 2, internal.n - i);
+        internal.keys[i] = separator(sibling);
+        internal.children[i + 1] = sibling;
+        internal.n++;
+        return internal.n > maxKeys ? splitInternal(internal) : null;
+    }
+
+    /**
+     * Smallest key reachable in the subtree, used as the separator for a new sibling.
+     */
+    private int separator(Node node) {
+        while (!node.isLeaf()) {
+            node = ((InternalNode) node).children[0];
+        }
+        return node.keys[0];
+    }
+
+    /**
+     * Moves the upper half of an overflowing leaf into a new leaf and links it in.
+     */
+    private LeafNode splitLeaf(LeafNode leaf) {
+        LeafNode right = new LeafNode();
+        int keep = (leaf.n + 1) / 2;
+        right.n = leaf.n - keep;
+        System.arraycopy(leaf.keys, keep, right.keys, 0, right.n);
+        leaf.n = keep;
+
+        right.next = leaf.next;
+        leaf.next = right;
+        return right;
+    }
+
+    /**
+     * Splits an overflowing internal node. The middle key moves up (it is
+     * recomputed from the sibling by the caller), the rest is divided.
+     */
+    private InternalNode splitInternal(InternalNode node) {
+        InternalNode right = new InternalNode();
+        int mid = node.n / 2;
+        right.n = node.n - mid - 1;
+        System.arraycopy(node.keys, mid + 1, right.keys, 0, right.n);
+        System.arraycopy(node.children, mid + 1, right.children, 0, right.n + 1);
+        Arrays.fill(node.children, mid + 1, node.n + 1, null);
+        node.n = mid;
+        return right;
+    }
+
+    /**
+     * Deletes a key from the B+ tree.
+     *
+     * @param key The integer key to delete.
+     */
+    public void delete(int key) {
+        delete(root, key);
+        if (!root.isLeaf() && root.n == 0) {
+            root = ((InternalNode) root).children[0];
+        }
+    }
+
+    /**
+     * Deletes from the subtree rooted at `node`, rebalancing children on the way back up.
+     */
+    private void delete(Node node, int key) {
+        if (node.isLeaf()) {
+            int i = node.findKeyIndex(key);
+            if (i < node.n && node.keys[i] == key) {
+                System.arraycopy(node.keys, i + 1, node.keys, i, node.n - i - 1);
+                node.n--;
+            }
+            return;
+        }
+
+        InternalNode parent = (InternalNode) node;
+        int i = parent.childIndex(key);
+        Node child = parent.children[i];
+        delete(child, key);
+        if (child.n < minKeys) {
+            rebalance(parent, i);
+        }
+    }
+
+    /**
+     * Fixes an underfull child by borrowing from a sibling or merging with it.
+     */
+    private void rebalance(InternalNode parent, int childIndex) {
+        Node child = parent.children[childIndex];
+        Node left = (childIndex > 0) ? parent.children[childIndex - 1] : null;
+        Node right = (childIndex < parent.n) ? parent.children[childIndex + 1] : null;
+
+        if (left != null && left.n > minKeys) {
+            borrowFromLeft(parent, childIndex, left, child);
+        } else if (right != null && right.n > minKeys) {
+            borrowFromRight(parent, childIndex, child, right);
+        } else if (left != null) {
+            merge(parent, childIndex - 1);
+        } else if (right != null) {
+            merge(parent, childIndex);
+        }
+    }
+
+    private void borrowFromLeft(InternalNode parent, int childIndex, Node left, Node child) {
+        if (child.isLeaf()) {
+            System.arraycopy(child.keys, 0, child.keys, 1, child.n);
+            child.keys[0] = left.keys[--left.n];
+            child.n++;
+            parent.keys[childIndex - 1] = child.keys[0];
+        } else {
+            InternalNode c = (InternalNode) child;
+            InternalNode l = (InternalNode) left;
+            System.arraycopy(c.keys, 0, c.keys, 1, c.n);
+            System.arraycopy(c.children, 0, c.children, 1, c.n + 1);
+            c.keys[0] = parent.keys[childIndex - 1];
+            c.children[0] = l.children[l.n];
+            l.children[l.n] = null;
+            c.n++;
+            parent.keys[childIndex - 1] = l.keys[--l.n];
+        }
+    }
+
+    private void borrowFromRight(InternalNode parent, int childIndex, Node child, Node right) {
+        if (child.isLeaf()) {
+            child.keys[child.n++] = right.keys[0];
+            System.arraycopy(right.keys, 1, right.keys, 0, --right.n);
+            parent.keys[childIndex] = right.keys[0];
+        } else {
+            InternalNode c = (InternalNode) child;
+            InternalNode r = (InternalNode) right;
+            c.keys[c.n] = parent.keys[childIndex];
+            c.children[c.n + 1] = r.children[0];
+            c.n++;
+            parent.keys[childIndex] = r.keys[0];
+            System.arraycopy(r.keys, 1, r.keys, 0, r.n - 1);
+            System.arraycopy(r.children, 1, r.children, 0, r.n);
+            r.children[r.n] = null;
+            r.n--;
+        }
+    }
+
+    /**
+     * Merges the child at `leftIndex + 1` into the child at `leftIndex`. Leaves drop
+     * the separator and unlink the right leaf; internal nodes pull the separator down.
+     */
+    private void merge(InternalNode parent, int leftIndex) {
+        Node left = parent.children[leftIndex];
+        Node right = parent.children[leftIndex + 1];
+
+        if (left.isLeaf()) {
+            LeafNode l = (LeafNode) left;
+            LeafNode r = (LeafNode) right;
+            System.arraycopy(r.keys, 0, l.keys, l.n, r.n);
+            l.n += r.n;
+            l.next = r.next;
+        } else {
+            InternalNode l = (InternalNode) left;
+            InternalNode r = (InternalNode) right;
+            l.keys[l.n] = parent.keys[leftIndex];
+            System.arraycopy(r.keys, 0, l.keys, l.n + 1, r.n);
+            System.arraycopy(r.children, 0, l.children, l.n + 1, r.n + 1);
+            l.n += r.n + 1;
+        }
+
+        System.arraycopy(parent.keys, leftIndex + 1, parent.keys, leftIndex, parent.n - leftIndex - 1);
+        System.arraycopy(parent.children, leftIndex + 2, parent.children, leftIndex + 1, parent.n - leftIndex - 1);
+        parent.children[parent.n] = null;
+        parent.n--;
+    }
+
+    /**
+     * Returns a cursor over every key in [lo, hi] in ascending order. The cursor
+     * descends once to the leaf holding `lo` and then follows the leaf links, so
+     * a scan of k keys costs O(log n + k). The tree must not be modified while a
+     * cursor is in use.
+     *
+     * @param lo Lower bound (inclusive).
+     * @param hi Upper bound (inclusive).
+     */
+    public PrimitiveIterator.OfInt rangeScan(int lo, int hi) {
+        LeafNode start = findLeaf(lo);
+        return new RangeCursor(start, start.findKeyIndex(lo), hi);
+    }
+
+    /**
+     * Cursor over the linked leaves; never goes back through internal nodes.
+     */
+    private class RangeCursor implements PrimitiveIterator.OfInt {
+        private LeafNode leaf;
+        private int index;
+        private final int hi;
+
+        RangeCursor(LeafNode leaf, int index, int hi) {
+            this.leaf = leaf;
+            this.index = index;
+            this.hi = hi;
+            skipExhaustedLeaves();
+        }
+
+        private void skipExhaustedLeaves() {
+            while (leaf != null && index >= leaf.n) {
+                leaf = leaf.next;
+                index = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return leaf != null && leaf.keys[index] <= hi;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int key = leaf.keys[index++];
+            skipExhaustedLeaves();
+            return key;
+        }
+    }
+
+    public void print() {
+        if (root.n == 0) {
+            System.out.println("Tree (m=" + m + ") is empty.");
+        } else {
+            System.out.println("B+ Tree (m=" + m + "):");
+            printRecursive(root, "");
+        }
+    }
+
+    private void printRecursive(Node node, String indent) {
+        System.out.println(indent + node);
+
+        if (!node.isLeaf()) {
+            InternalNode internal = (InternalNode) node;
+            String childIndent = indent + "  ";
+            for (int i = 0; i <= internal.n; i++) {
+                printRecursive(internal.children[i], childIndent);
+            }
+        }
+    }
+
+    /**
+     * Prints the leaf chain from left to right.
+     */
+    public void printLeaves() {
+        StringBuilder sb = new StringBuilder("Leaves: ");
+        for (LeafNode leaf = firstLeaf; leaf != null; leaf = leaf.next) {
+            sb.append(leaf).append(leaf.next != null ? " -> " : "");
+        }
+        System.out.println(sb);
+    }
+
+    public static void main(String[] args) {
+        System.out.println("==============================================");
+        System.out.println("=          B+ TREE: Order m = 4              =");
+        System.out.println("==============================================");
+
+        BPlusTree t = new BPlusTree(4);
+        System.out.println("Step 1: Inserting 1 to 20");
+        for (int i = 1; i <= 20; i++) {
+            t.insert(i);
+        }
+        t.print();
+        t.printLeaves();
+        System.out.println("----------------------------------------------");
+
+        System.out.println("Step 2: Range scan [5, 14]");
+        PrimitiveIterator.OfInt cursor = t.rangeScan(5, 14);
+        StringBuilder sb = new StringBuilder();
+        while (cursor.hasNext()) {
+            sb.append(cursor.nextInt()).append(' ');
+        }
+        System.out.println(sb.toString().trim());
+        System.out.println("----------------------------------------------");
+
+        System.out.println("Step 3: Deleting even numbers");
+        for (int i = 2; i <= 20; i += 2) {
+            t.delete(i);
+        }
+        t.print();
+        t.printLeaves();
+    }
+}
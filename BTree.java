@@ -1,49 +1,111 @@
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.PrimitiveIterator;
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 public class BTree {
     private BTreeNode root;
     private final int m;
     private final int maxKeys;
     private final int minKeys;
+    private final int keyCapacity;
+
+    // structural counters, plain fields since the tree is single-threaded anyway
+    private long splits;
+    private long merges;
+    private long borrows;
+    private long searches;
+    private long searchVisits;
+
+    // the tree's shape, kept up to date by every change so stats() never walks the tree
+    private int height;
+    private long nodeCount;
+    private long keyCount;
 
     private class BTreeNode {
-        List<Integer> keys;
-        List<BTreeNode> children;
+        int[] keys;
+        BTreeNode[] children;
+        int n; // number of keys currently in use
         boolean leaf;
 
-        BTreeNode(int m, boolean leaf) {
+        BTreeNode(boolean leaf) {
+            nodeCount++;
             this.leaf = leaf;
-            this.keys = new ArrayList<>(m - 1);
-            this.children = new ArrayList<>(m);
+            this.keys = new int[keyCapacity];
+            this.children = leaf ? null : new BTreeNode[keyCapacity + 1];
         }
 
         /**
-         * Finds the first index 'i' in the keys list such that
-         * 'key <= keys.get(i)'.
+         * Finds the first index 'i' in the keys array such that
+         * 'key <= keys[i]', using binary search over the used slots.
          * @param key The key to search for
          * @return index for this key
          */
         int findKeyIndex(int key) {
-            int index = 0;
-            while (index < keys.size() && keys.get(index) < key) {
-                index++;
+            int lo = 0;
+            int hi = n;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid] < key) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
             }
-            return index;
+            return lo;
+        }
+
+        /**
+         * Checks if the node holds more than maxKeys keys and has to be split
+         */
+        boolean isOverfull() {
+            return n > maxKeys;
         }
 
         /**
-         * Checks if the node is at maximum key capacity (maxKeys)
+         * Opens a gap at `index` and stores `key` there.
          */
-        boolean isFull() {
-            return keys.size() == maxKeys;
+        void insertKey(int index, int key) {
+            System.arraycopy(keys, index, keys, index + 1, n - index);
+            keys[index] = key;
+            n++;
         }
 
         /**
-         * Checks if the node is at its minimum key capacity (minKeys)
+         * Removes the key at `index`, closing the gap.
          */
-        boolean isMinimal() {
-            return keys.size() == minKeys;
+        int removeKey(int index) {
+            int key = keys[index];
+            System.arraycopy(keys, index + 1, keys, index, n - index - 1);
+            n--;
+            return key;
+        }
+
+        /**
+         * Opens a gap at `index` in the children array (which holds n + 1 entries
+         * before the matching key is inserted) and stores `child` there.
+         */
+        void insertChild(int index, BTreeNode child, int childCount) {
+            System.arraycopy(children, index, children, index + 1, childCount - index);
+            children[index] = child;
+        }
+
+        /**
+         * Removes the child at `index` from an array holding `childCount` entries.
+         */
+        BTreeNode removeChild(int index, int childCount) {
+            BTreeNode child = children[index];
+            System.arraycopy(children, index + 1, children, index, childCount - index - 1);
+            children[childCount - 1] = null;
+            return child;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(Arrays.copyOf(keys, n));
         }
     }
 
@@ -58,31 +120,140 @@ public class BTree {
         this.m = m;
         this.maxKeys = m - 1;
         this.minKeys = (int) Math.ceil(m / 2.0) - 1;
-        this.root = new BTreeNode(m,true);
+        // insert adds the key first and splits afterwards, so a node briefly holds maxKeys + 1
+        this.keyCapacity = maxKeys + 1;
+        this.root = new BTreeNode(true);
+        this.height = 1;
     }
 
     /**
-     * Searches for a key in the B-Tree.
+     * Builds a B-Tree from keys that arrive in strictly ascending order, bottom-up
+     * in a single pass instead of one root-to-leaf insert per key.
      *
-     * @param key The integer key to search for.
-     * @return true if the key is found, false otherwise.
+     * @param m The order of the tree.
+     * @param sortedKeys Strictly ascending keys.
+     * @param fillFactor Fraction of maxKeys to fill each node with, in (0, 1].
+     * @return the loaded tree
      */
-    public boolean search(int key) {
-        return search(root, key);
+    public static BTree bulkLoad(int m, int[] sortedKeys, double fillFactor) {
+        return bulkLoad(m, Arrays.stream(sortedKeys).iterator(), fillFactor);
     }
 
-    private boolean search(BTreeNode node, int key) {
-        int i = node.findKeyIndex(key);
+    /**
+     * Builds a B-Tree from a stream of strictly ascending keys. Each node on the
+     * rightmost path is filled to `fillFactor * maxKeys` keys; once it is full the
+     * next key is promoted as a separator and a fresh right sibling is started, so
+     * only the rightmost path is ever open. At the end that path is topped up from
+     * its left siblings so every node still holds at least minKeys keys.
+     *
+     * @param m The order of the tree.
+     * @param sortedKeys Strictly ascending keys.
+     * @param fillFactor Fraction of maxKeys to fill each node with, in (0, 1].
+     * @return the loaded tree
+     */
+    public static BTree bulkLoad(int m, PrimitiveIterator.OfInt sortedKeys, double fillFactor) {
+        if (!(fillFactor > 0 && fillFactor <= 1)) {
+            throw new IllegalArgumentException("Fill factor must be in (0, 1].");
+        }
+        BTree tree = new BTree(m);
+        int target = Math.max(Math.max(tree.minKeys, 1), Math.min(tree.maxKeys, (int) Math.round(fillFactor * tree.maxKeys)));
 
-        if (i < node.keys.size() && node.keys.get(i) == key) {
-            return true;
+        // spine.get(level) is the open (rightmost) node on that level, leaves at level 0
+        List<BTreeNode> spine = new ArrayList<>();
+        spine.add(tree.root);
+        boolean first = true;
+        int previous = 0;
+
+        while (sortedKeys.hasNext()) {
+            int key = sortedKeys.nextInt();
+            if (!first && key <= previous) {
+                throw new IllegalArgumentException("Keys must be strictly ascending: " + key + " after " + previous);
+            }
+            first = false;
+            previous = key;
+            tree.keyCount++;
+
+            BTreeNode leaf = spine.get(0);
+            if (leaf.n < target) {
+                leaf.keys[leaf.n++] = key;
+                continue;
+            }
+
+            // promote the key to the first ancestor with room, opening new nodes above if needed
+            int level = 1;
+            while (level < spine.size() && spine.get(level).n >= target) {
+                level++;
+            }
+            if (level == spine.size()) {
+                BTreeNode newRoot = tree.new BTreeNode(false);
+                newRoot.children[0] = spine.get(level - 1);
+                spine.add(newRoot);
+                tree.height++;
+            }
+            BTreeNode parent = spine.get(level);
+            parent.keys[parent.n++] = key;
+
+            // start a fresh right-hand path below the separator
+            for (int l = level - 1; l >= 0; l--) {
+                BTreeNode fresh = tree.new BTreeNode(l == 0);
+                BTreeNode above = spine.get(l + 1);
+                above.children[above == parent ? above.n : 0] = fresh;
+                spine.set(l, fresh);
+            }
         }
 
+        tree.root = spine.get(spine.size() - 1);
+        tree.fixRightSpine();
+        return tree;
+    }
+
+    /**
+     * Repairs the rightmost path after a bulk load, where the last node on each
+     * level can be left short or even empty. The path is fixed bottom-up: each
+     * short node is merged into its left sibling or evened out with it, as
+     * deleteAll does, so every node below the root ends up with at least minKeys
+     * keys. A node that is the only child of an empty parent is fixed once that
+     * parent has been given a left neighbour of its own.
+     */
+    private void fixRightSpine() {
+        fixLastChild(root);
+        collapseRoot();
+    }
+
+    private void fixLastChild(BTreeNode node) {
         if (node.leaf) {
-            return false;
+            return;
         }
+        BTreeNode last = node.children[node.n];
+        fixLastChild(last);
+        if (last.n < minKeys) {
+            fixChild(node, node.n);
+        }
+    }
+
+    /**
+     * Searches for a key in the B-Tree.
+     *
+     * @param key The integer key to search for.
+     * @return true if the key is found, false otherwise.
+     */
+    public boolean search(int key) {
+        BTreeNode node = root;
+        searches++;
+        while (true) {
+            searchVisits++;
+            int i = node.findKeyIndex(key);
+
+            if (i < node.n && node.keys[i] == key) {
+                return true;
+            }
+
+            if (node.leaf) {
+                return false;
+            }
 
-        return search(node.children.get(i), key);
+            node = node.children[i];
+        }
     }
 
     /**
@@ -91,66 +262,62 @@ public class BTree {
      * @param key The integer key to insert.
      */
     public void insert(int key) {
-        BTreeNode r = root;
-        if (r.isFull()) {
-            BTreeNode newRoot = new BTreeNode(m, false);
-            newRoot.children.add(r);
+        if (insert(root, key)) {
+            BTreeNode newRoot = new BTreeNode(false);
+            newRoot.children[0] = root;
             splitChild(newRoot, 0);
             this.root = newRoot;
-            insertNonFull(newRoot, key);
-        } else {
-            insertNonFull(r, key);
+            height++;
         }
+        keyCount++;
     }
 
     /**
-     * Inserts a key into a node that is guaranteed to be non-full.
+     * Inserts a key below `node`, splitting every child that overflows on the
+     * way back up. Splitting after the fact rather than before descending lets
+     * both halves keep minKeys keys for odd orders too, where a node of maxKeys
+     * keys is one key short of two minimal halves and a separator.
+     * @return true if `node` itself now holds one key too many
      */
-    private void insertNonFull(BTreeNode node, int key) {
+    private boolean insert(BTreeNode node, int key) {
         int i = node.findKeyIndex(key);
 
         if (node.leaf) {
-            node.keys.add(i, key);
-        } else {
-            BTreeNode child = node.children.get(i);
-
-            if (child.isFull()) {
-                splitChild(node, i);
-                if (key > node.keys.get(i)) {
-                    i++;
-                }
-            }
-            insertNonFull(node.children.get(i), key);
+            node.insertKey(i, key);
+        } else if (insert(node.children[i], key)) {
+            splitChild(node, i);
         }
+        return node.isOverfull();
     }
 
     /**
-     * Splits a full child node of a given parent node.
+     * Splits an overfull child node of a given parent node.
      * The child is at index `childIndex` in `parent.children`.
-     * The full child is split into two, and the middle key is
-     * promoted to the parent
+     * The child is split into two, and the middle key is
+     * promoted to the parent; each half keeps at least minKeys keys.
+     * PagedBTree and SnapshotBTree split the same way after an overflow;
+     * BTreeBenchmark.crossCheck runs all the variants side by side.
      */
     private void splitChild(BTreeNode parent, int childIndex) {
-        BTreeNode fullChild = parent.children.get(childIndex);
-        BTreeNode newSibling = new BTreeNode(m, fullChild.leaf);
-
-        int middleKey = fullChild.keys.get(minKeys);
+        BTreeNode fullChild = parent.children[childIndex];
+        BTreeNode newSibling = new BTreeNode(fullChild.leaf);
+        splits++;
 
-        parent.keys.add(childIndex, middleKey);
-
-        for (int k = maxKeys - 1; k > minKeys; k--) {
-            newSibling.keys.add(0, fullChild.keys.remove(k));
-        }
+        int middle = fullChild.n / 2;
+        int middleKey = fullChild.keys[middle];
+        int moved = fullChild.n - middle - 1;
 
-        fullChild.keys.remove(minKeys);
+        System.arraycopy(fullChild.keys, middle + 1, newSibling.keys, 0, moved);
+        newSibling.n = moved;
 
         if (!fullChild.leaf) {
-            for (int k = m - 1; k > minKeys; k--) {
-                newSibling.children.add(0, fullChild.children.remove(k));
-            }
+            System.arraycopy(fullChild.children, middle + 1, newSibling.children, 0, moved + 1);
+            Arrays.fill(fullChild.children, middle + 1, fullChild.n + 1, null);
         }
+        fullChild.n = middle;
 
-        parent.children.add(childIndex + 1, newSibling);
+        parent.insertChild(childIndex + 1, newSibling, parent.n + 1);
+        parent.insertKey(childIndex, middleKey);
     }
 
     /**
@@ -159,74 +326,58 @@ public class BTree {
      * @param key The integer key to delete.
      */
     public void delete(int key) {
-        delete(root, key);
-        if (root.keys.isEmpty() && !root.leaf) {
-            root = root.children.get(0);
+        if (delete(root, key)) {
+            keyCount--;
         }
+        collapseRoot();
     }
 
-    private void delete(BTreeNode node, int key) {
+    /**
+     * Deletes a key below `node` and repairs the child it came out of on the way
+     * back up, by merging it with a sibling or evening the two out. A key in an
+     * internal node is replaced by its predecessor. `node` itself may be left
+     * short and is repaired by its parent.
+     * @return true if the key was found
+     */
+    private boolean delete(BTreeNode node, int key) {
         int i = node.findKeyIndex(key);
-        if (i < node.keys.size() && node.keys.get(i) == key) {
+        if (i < node.n && node.keys[i] == key) {
             if (node.leaf) {
-                node.keys.remove(i);
-            } else {
-                deleteFromInternalNode(node, i, key);
+                node.removeKey(i);
+                return true;
             }
-        } else {
-            if (node.leaf) {
-                return;
-            }
-            hasSufficientKeys(node, i);
-            int newChildIndex = node.findKeyIndex(key);
-            delete(node.children.get(newChildIndex), key);
+            node.keys[i] = (int) removeMax(node.children[i]);
+        } else if (node.leaf || !delete(node.children[i], key)) {
+            return false;
         }
+        if (node.children[i].n < minKeys) {
+            fixChild(node, i);
+        }
+        return true;
     }
 
     /**
-     * Handles deletion of a key from an internal node.
-     * Replaces the key with its predecessor or successor, or merges children
+     * Replaces a root that has no keys left by its only child.
      */
-    private void deleteFromInternalNode(BTreeNode node, int keyIndex, int key) {
-        BTreeNode leftChild = node.children.get(keyIndex);
-        BTreeNode rightChild = node.children.get(keyIndex + 1);
-
-        if (leftChild.keys.size() > minKeys) {
-            int predecessor = findPredecessor(leftChild);
-            node.keys.set(keyIndex, predecessor);
-            delete(leftChild, predecessor);
-        } else if (rightChild.keys.size() > minKeys) {
-            int successor = findSuccessor(rightChild);
-            node.keys.set(keyIndex, successor);
-            delete(rightChild, successor);
-        } else {
-            merge(node, keyIndex);
-            delete(leftChild, key);
+    private void collapseRoot() {
+        while (root.n == 0 && !root.leaf) {
+            root = root.children[0];
+            nodeCount--;
+            height--;
         }
     }
 
     /**
-     * Ensures that the child at `childIndex` of `parent` has at least
-     * `minKeys + 1` keys, so we can safely delete from it.
+     * Accounts for an unlinked subtree without keys, which is a chain of empty
+     * nodes down to a leaf.
      */
-    private void hasSufficientKeys(BTreeNode parent, int childIndex) {
-        BTreeNode child = parent.children.get(childIndex);
-
-        if (child.isMinimal()) {
-            BTreeNode leftSibling = (childIndex > 0) ? parent.children.get(childIndex - 1) : null;
-            BTreeNode rightSibling = (childIndex < parent.children.size() - 1) ? parent.children.get(childIndex + 1) : null;
-
-            if (leftSibling != null && leftSibling.keys.size() > minKeys) {
-                shiftKeyFromLeft(parent, childIndex);
-            } else if (rightSibling != null && rightSibling.keys.size() > minKeys) {
-                shiftKeyFromRight(parent, childIndex);
-            } else {
-                if (leftSibling != null) {
-                    merge(parent, childIndex - 1);
-                } else {
-                    merge(parent, childIndex);
-                }
+    private void discardEmpty(BTreeNode node) {
+        while (true) {
+            nodeCount--;
+            if (node.leaf) {
+                return;
             }
+            node = node.children[0];
         }
     }
 
@@ -235,15 +386,17 @@ public class BTree {
      * and moves it to the child (at `childIndex`).
      */
     private void shiftKeyFromLeft(BTreeNode parent, int childIndex) {
-        BTreeNode child = parent.children.get(childIndex);
-        BTreeNode leftSibling = parent.children.get(childIndex - 1);
-
-        child.keys.add(0, parent.keys.get(childIndex - 1));
-        parent.keys.set(childIndex - 1, leftSibling.keys.remove(leftSibling.keys.size() - 1));
+        BTreeNode child = parent.children[childIndex];
+        BTreeNode leftSibling = parent.children[childIndex - 1];
+        borrows++;
 
         if (!leftSibling.leaf) {
-            child.children.add(0, leftSibling.children.remove(leftSibling.children.size() - 1));
+            child.insertChild(0, leftSibling.children[leftSibling.n], child.n + 1);
+            leftSibling.children[leftSibling.n] = null;
         }
+
+        child.insertKey(0, parent.keys[childIndex - 1]);
+        parent.keys[childIndex - 1] = leftSibling.keys[--leftSibling.n];
     }
 
     /**
@@ -251,14 +404,16 @@ public class BTree {
      * and moves it to the child (at `childIndex`).
      */
     private void shiftKeyFromRight(BTreeNode parent, int childIndex) {
-        BTreeNode child = parent.children.get(childIndex);
-        BTreeNode rightSibling = parent.children.get(childIndex + 1);
-        child.keys.add(parent.keys.get(childIndex));
-        parent.keys.set(childIndex, rightSibling.keys.remove(0));
+        BTreeNode child = parent.children[childIndex];
+        BTreeNode rightSibling = parent.children[childIndex + 1];
+        borrows++;
 
         if (!rightSibling.leaf) {
-            child.children.add(rightSibling.children.remove(0));
+            child.children[child.n + 1] = rightSibling.removeChild(0, rightSibling.n + 1);
         }
+
+        child.keys[child.n++] = parent.keys[childIndex];
+        parent.keys[childIndex] = rightSibling.removeKey(0);
     }
 
     /**
@@ -266,41 +421,525 @@ public class BTree {
      * The separating key from the parent is also moved down.
      */
     private void merge(BTreeNode parent, int leftChildIndex) {
-        BTreeNode leftChild = parent.children.get(leftChildIndex);
-        BTreeNode rightChild = parent.children.get(leftChildIndex + 1);
+        BTreeNode leftChild = parent.children[leftChildIndex];
+        BTreeNode rightChild = parent.children[leftChildIndex + 1];
+        merges++;
 
         // pull separating key from parent down to left child
-        leftChild.keys.add(parent.keys.remove(leftChildIndex));
+        leftChild.keys[leftChild.n] = parent.keys[leftChildIndex];
 
         // move all keys from right child to left child
-        leftChild.keys.addAll(rightChild.keys);
+        System.arraycopy(rightChild.keys, 0, leftChild.keys, leftChild.n + 1, rightChild.n);
 
-        // move all children from right to left if not leaft
+        // move all children from right to left if not leaf
         if (!leftChild.leaf) {
-            leftChild.children.addAll(rightChild.children);
+            System.arraycopy(rightChild.children, 0, leftChild.children, leftChild.n + 1, rightChild.n + 1);
         }
+        leftChild.n += rightChild.n + 1;
 
-        parent.children.remove(leftChildIndex + 1);
+        parent.removeChild(leftChildIndex + 1, parent.n + 1);
+        parent.removeKey(leftChildIndex);
+        nodeCount--;
     }
 
+    // --> batch operations <--
+
+    private static final long NO_KEY = Long.MIN_VALUE; // "subtree was empty" for removeMax/removeMin
+
     /**
-     * Finds the in-order predecessor of a key (max key in the left subtree).
+     * The pieces an overflowing node was cut into: `count` new right siblings,
+     * each preceded by the separator that has to go up into the parent.
      */
-    private int findPredecessor(BTreeNode node) {
-        while (!node.leaf) {
-            node = node.children.get(node.children.size() - 1);
+    private class Split {
+        final int[] separators;
+        final BTreeNode[] siblings;
+        final int count;
+
+        Split(int count) {
+            this.count = count;
+            this.separators = new int[count];
+            this.siblings = new BTreeNode[count];
         }
-        return node.keys.get(node.keys.size() - 1);
     }
 
     /**
-     * Finds the in-order successor of a key (min key in the right subtree).
+     * Inserts every key in `keys`, with the same result as calling insert() for
+     * each one. The batch is sorted and pushed down the tree in a single pass:
+     * every node is visited once for all the keys below it, a leaf absorbs its
+     * whole run in one merge, and a node that overflows is cut into as many
+     * pieces as it needs at once instead of being split once per key.
+     *
+     * @param keys The keys to insert, in any order.
      */
-    private int findSuccessor(BTreeNode node) {
-        while (!node.leaf) {
-            node = node.children.get(0);
+    public void insertAll(int[] keys) {
+        if (keys.length == 0) {
+            return;
+        }
+        int[] sorted = keys.clone();
+        Arrays.sort(sorted);
+        keyCount += sorted.length;
+
+        Split split = insertBatch(root, sorted, 0, sorted.length);
+        while (split != null) {
+            // the old root and its new siblings go under a new root, which can
+            // itself overflow when the batch is large compared to the tree
+            BTreeNode[] children = new BTreeNode[split.count + 1];
+            children[0] = root;
+            System.arraycopy(split.siblings, 0, children, 1, split.count);
+            root = new BTreeNode(false);
+            height++;
+            split = distribute(root, split.separators, children, split.count);
+        }
+    }
+
+    /**
+     * Inserts the sorted run batch[from, to) below `node`.
+     * @return the extra siblings `node` was cut into, or null if it did not overflow
+     */
+    private Split insertBatch(BTreeNode node, int[] batch, int from, int to) {
+        if (node.leaf) {
+            int total = node.n + (to - from);
+            int[] merged = new int[total];
+            int i = 0;
+            int j = from;
+            int k = 0;
+            while (i < node.n && j < to) {
+                merged[k++] = (node.keys[i] <= batch[j]) ? node.keys[i++] : batch[j++];
+            }
+            while (i < node.n) {
+                merged[k++] = node.keys[i++];
+            }
+            while (j < to) {
+                merged[k++] = batch[j++];
+            }
+            return distribute(node, merged, null, total);
+        }
+
+        // hand each child the run of keys that insert() would have sent to it
+        Split[] childSplits = null;
+        int added = 0;
+        int start = from;
+        for (int c = 0; c <= node.n && start < to; c++) {
+            int end = start;
+            while (end < to && (c == node.n || batch[end] <= node.keys[c])) {
+                end++;
+            }
+            if (end > start) {
+                Split split = insertBatch(node.children[c], batch, start, end);
+                if (split != null) {
+                    if (childSplits == null) {
+                        childSplits = new Split[node.n + 1];
+                    }
+                    childSplits[c] = split;
+                    added += split.count;
+                }
+            }
+            start = end;
+        }
+        if (childSplits == null) {
+            return null;
+        }
+
+        // splice the children's new siblings and separators in next to them
+        int total = node.n + added;
+        int[] keys = new int[total];
+        BTreeNode[] children = new BTreeNode[total + 1];
+        int k = 0;
+        for (int c = 0; c <= node.n; c++) {
+            children[k] = node.children[c];
+            Split split = childSplits[c];
+            if (split != null) {
+                for (int x = 0; x < split.count; x++) {
+                    keys[k++] = split.separators[x];
+                    children[k] = split.siblings[x];
+                }
+            }
+            if (c < node.n) {
+                keys[k++] = node.keys[c];
+            }
+        }
+        return distribute(node, keys, children, total);
+    }
+
+    /**
+     * Stores `total` keys (and, for an internal node, total + 1 children) in `node`.
+     * If they do not fit, they are cut into the fewest pieces of at most maxKeys
+     * keys each; `node` keeps the first piece and the rest become new siblings.
+     */
+    private Split distribute(BTreeNode node, int[] keys, BTreeNode[] children, int total) {
+        int pieces = (total + maxKeys + 1) / (maxKeys + 1); // ceil((total + 1) / (maxKeys + 1))
+        int perPiece = (total - (pieces - 1)) / pieces;
+        int remainder = (total - (pieces - 1)) % pieces;
+        Split split = (pieces > 1) ? new Split(pieces - 1) : null;
+        splits += pieces - 1;
+
+        int oldCount = node.n;
+        int pos = 0;
+        for (int p = 0; p < pieces; p++) {
+            int size = perPiece + (p < remainder ? 1 : 0);
+            BTreeNode target = (p == 0) ? node : new BTreeNode(node.leaf);
+            System.arraycopy(keys, pos, target.keys, 0, size);
+            if (children != null) {
+                System.arraycopy(children, pos, target.children, 0, size + 1);
+            }
+            target.n = size;
+            pos += size;
+
+            if (p > 0) {
+                split.siblings[p - 1] = target;
+            }
+            if (p < pieces - 1) {
+                split.separators[p] = keys[pos++];
+            }
+        }
+        if (children != null && node.n < oldCount) {
+            Arrays.fill(node.children, node.n + 1, oldCount + 1, null);
+        }
+        return split;
+    }
+
+    /**
+     * Deletes every distinct key in `keys`; a key in the batch removes one
+     * occurrence of it, like delete(). The sorted batch is pushed down the tree in
+     * a single pass, each leaf drops its whole run in one compaction, and
+     * underfull nodes are merged or evened out with a sibling once on the way back
+     * up instead of once per key.
+     *
+     * @param keys The keys to delete, in any order.
+     */
+    public void deleteAll(int[] keys) {
+        if (keys.length == 0) {
+            return;
+        }
+        int[] sorted = keys.clone();
+        Arrays.sort(sorted);
+        int distinct = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] != sorted[distinct - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+
+        deleteBatch(root, sorted, 0, distinct);
+        collapseRoot();
+    }
+
+    /**
+     * Deletes the sorted, distinct run batch[from, to) below `node`. Afterwards
+     * every node below `node` holds at least minKeys keys again; `node` itself may
+     * be short and is fixed by its parent.
+     */
+    private void deleteBatch(BTreeNode node, int[] batch, int from, int to) {
+        if (node.leaf) {
+            int j = from;
+            int kept = 0;
+            for (int i = 0; i < node.n; i++) {
+                int key = node.keys[i];
+                while (j < to && batch[j] < key) {
+                    j++;
+                }
+                if (j < to && batch[j] == key) {
+                    j++;
+                    continue;
+                }
+                node.keys[kept++] = key;
+            }
+            keyCount -= node.n - kept;
+            node.n = kept;
+            return;
+        }
+
+        // route runs to the children and remember which separators are themselves deleted
+        int[] hits = null;
+        int hitCount = 0;
+        int start = from;
+        for (int c = 0; c <= node.n && start < to; c++) {
+            int end = start;
+            while (end < to && (c == node.n || batch[end] < node.keys[c])) {
+                end++;
+            }
+            if (end > start) {
+                deleteBatch(node.children[c], batch, start, end);
+            }
+            start = end;
+            if (c < node.n && start < to && batch[start] == node.keys[c]) {
+                if (hits == null) {
+                    hits = new int[node.n];
+                }
+                hits[hitCount++] = c;
+                start++;
+            }
+        }
+
+        // replace deleted separators with their predecessor or successor, right to left
+        keyCount -= hitCount;
+        for (int h = hitCount - 1; h >= 0; h--) {
+            int c = hits[h];
+            long replacement = removeMax(node.children[c]);
+            if (replacement == NO_KEY) {
+                replacement = removeMin(node.children[c + 1]);
+            }
+            if (replacement != NO_KEY) {
+                node.keys[c] = (int) replacement;
+            } else {
+                // both sides of the separator are empty: drop it and the right side
+                node.removeKey(c);
+                discardEmpty(node.removeChild(c + 1, node.n + 2));
+            }
+        }
+
+        repairChildren(node);
+    }
+
+    /**
+     * Removes and returns the largest key under `node`, or NO_KEY if the subtree
+     * is empty. Children on the way down are repaired; `node` itself may be short.
+     */
+    private long removeMax(BTreeNode node) {
+        if (node.leaf) {
+            return (node.n > 0) ? node.keys[--node.n] : NO_KEY;
+        }
+        long max = removeMax(node.children[node.n]);
+        if (max == NO_KEY) {
+            if (node.n == 0) {
+                return NO_KEY;
+            }
+            // nothing is left under the last child, so the last separator is the maximum
+            discardEmpty(node.children[node.n]);
+            node.children[node.n] = null;
+            return node.keys[--node.n];
+        }
+        if (node.children[node.n].n < minKeys) {
+            repairChildren(node);
+        }
+        return max;
+    }
+
+    /**
+     * Removes and returns the smallest key under `node`, or NO_KEY if the subtree
+     * is empty. Children on the way down are repaired; `node` itself may be short.
+     */
+    private long removeMin(BTreeNode node) {
+        if (node.leaf) {
+            return (node.n > 0) ? node.removeKey(0) : NO_KEY;
+        }
+        long min = removeMin(node.children[0]);
+        if (min == NO_KEY) {
+            if (node.n == 0) {
+                return NO_KEY;
+            }
+            discardEmpty(node.removeChild(0, node.n + 1));
+            return node.removeKey(0);
+        }
+        if (node.children[0].n < minKeys) {
+            repairChildren(node);
+        }
+        return min;
+    }
+
+    /**
+     * Fixes every child of `node` that holds fewer than minKeys keys.
+     */
+    private void repairChildren(BTreeNode node) {
+        int i = 0;
+        while (node.n > 0 && i <= node.n) {
+            i = (node.children[i].n < minKeys) ? fixChild(node, i) : i + 1;
+        }
+    }
+
+    /**
+     * Fixes the short child at `childIndex` by merging it with a neighbour, or by
+     * evening the two out when they do not fit in one node. Grandchildren that
+     * end up next to each other are repaired too. Every merge removes a node, so
+     * the repeated checks this causes always come to an end.
+     * @return the index of the next child that still has to be checked
+     */
+    private int fixChild(BTreeNode node, int childIndex) {
+        if (node.n == 0) {
+            return childIndex + 1; // an only child is fixed together with its parent
+        }
+        int left = (childIndex > 0) ? childIndex - 1 : childIndex;
+        BTreeNode leftChild = node.children[left];
+        BTreeNode rightChild = node.children[left + 1];
+
+        if (leftChild.n + 1 + rightChild.n <= maxKeys) {
+            merge(node, left);
+            if (!leftChild.leaf) {
+                repairChildren(leftChild);
+            }
+            return left; // the merged node can still be short
+        }
+
+        while (leftChild.n > rightChild.n + 1) {
+            shiftKeyFromLeft(node, left + 1);
+        }
+        while (rightChild.n > leftChild.n + 1) {
+            shiftKeyFromRight(node, left);
+        }
+        if (!leftChild.leaf) {
+            repairChildren(leftChild);
+            repairChildren(rightChild);
+            // merges among the grandchildren can leave either side short again
+            return left;
+        }
+        return left + 2;
+    }
+
+    // --> statistics <--
+
+    /**
+     * A point-in-time view of the tree's shape and of the counters since the
+     * last {@link #resetCounters()}.
+     */
+    public static final class Stats {
+        public final long splits;
+        public final long merges;
+        public final long borrows;
+        public final long searches;
+        public final double visitsPerSearch;
+        public final int height;
+        public final long nodeCount;
+        public final long keyCount;
+        public final double fillFactor; // keyCount / (nodeCount * maxKeys)
+
+        private Stats(long splits, long merges, long borrows, long searches, double visitsPerSearch,
+                      int height, long nodeCount, long keyCount, double fillFactor) {
+            this.splits = splits;
+            this.merges = merges;
+            this.borrows = borrows;
+            this.searches = searches;
+            this.visitsPerSearch = visitsPerSearch;
+            this.height = height;
+            this.nodeCount = nodeCount;
+            this.keyCount = keyCount;
+            this.fillFactor = fillFactor;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("height=%d nodes=%d keys=%d fill=%.1f%% | splits=%d merges=%d borrows=%d"
+                            + " | searches=%d visits/search=%.2f",
+                    height, nodeCount, keyCount, fillFactor * 100, splits, merges, borrows,
+                    searches, visitsPerSearch);
+        }
+    }
+
+    /**
+     * JMX view of {@link Stats}. Each attribute read takes a fresh snapshot.
+     */
+    public interface StatsMXBean {
+        long getSplits();
+        long getMerges();
+        long getBorrows();
+        long getSearches();
+        double getVisitsPerSearch();
+        int getHeight();
+        long getNodeCount();
+        long getKeyCount();
+        double getFillFactor();
+        void resetCounters();
+    }
+
+    /**
+     * Takes a snapshot of the tree statistics in O(1). The counters are read as
+     * they are, and height, node count and key count are kept up to date by
+     * every change to the tree.
+     */
+    public Stats stats() {
+        double fill = (double) keyCount / (nodeCount * maxKeys);
+        double visits = (searches == 0) ? 0 : (double) searchVisits / searches;
+        return new Stats(splits, merges, borrows, searches, visits, height, nodeCount, keyCount, fill);
+    }
+
+    /**
+     * Zeroes the split, merge, borrow and search counters.
+     */
+    public void resetCounters() {
+        splits = 0;
+        merges = 0;
+        borrows = 0;
+        searches = 0;
+        searchVisits = 0;
+    }
+
+    /**
+     * Registers this tree's statistics with the platform MBean server as
+     * `BTree:type=BTree,name=<name>`. BTree is not thread-safe, so every JMX read
+     * synchronizes on `lock`, which must be the monitor the application holds
+     * while it modifies the tree.
+     *
+     * @return the name the bean was registered under
+     */
+    public ObjectName registerMBean(String name, Object lock) throws JMException {
+        ObjectName objectName = new ObjectName("BTree:type=BTree,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(new StatsView(lock), objectName);
+        return objectName;
+    }
+
+    private class StatsView implements StatsMXBean {
+        private final Object lock;
+
+        StatsView(Object lock) {
+            this.lock = lock;
+        }
+
+        private Stats read() {
+            synchronized (lock) {
+                return stats();
+            }
+        }
+
+        @Override
+        public long getSplits() {
+            return read().splits;
+        }
+
+        @Override
+        public long getMerges() {
+            return read().merges;
+        }
+
+        @Override
+        public long getBorrows() {
+            return read().borrows;
+        }
+
+        @Override
+        public long getSearches() {
+            return read().searches;
+        }
+
+        @Override
+        public double getVisitsPerSearch() {
+            return read().visitsPerSearch;
+        }
+
+        @Override
+        public int getHeight() {
+            return read().height;
+        }
+
+        @Override
+        public long getNodeCount() {
+            return read().nodeCount;
+        }
+
+        @Override
+        public long getKeyCount() {
+            return read().keyCount;
+        }
+
+        @Override
+        public double getFillFactor() {
+            return read().fillFactor;
+        }
+
+        @Override
+        public void resetCounters() {
+            synchronized (lock) {
+                BTree.this.resetCounters();
+            }
         }
-        return node.keys.get(0);
     }
 
 //    /**
@@ -330,8 +969,46 @@ public class BTree {
 //        }
 //    }
 
+    /**
+     * Walks the whole tree and throws IllegalStateException unless every node
+     * but the root holds between minKeys and maxKeys keys, keys are in order and
+     * all leaves sit at the same depth.
+     */
+    void checkShape() {
+        checkShape(root, true, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Checks the subtree under `node`, whose keys must lie strictly between
+     * `low` and `high`, and returns its height.
+     */
+    private int checkShape(BTreeNode node, boolean isRoot, long low, long high) {
+        if (node.n > maxKeys || (!isRoot && node.n < minKeys)) {
+            throw new IllegalStateException("Node " + node + " has " + node.n + " keys, expected "
+                    + (isRoot ? 0 : minKeys) + " to " + maxKeys);
+        }
+        for (int i = 0; i < node.n; i++) {
+            if (node.keys[i] <= (i == 0 ? low : node.keys[i - 1]) || node.keys[i] >= high) {
+                throw new IllegalStateException("Node " + node + " has keys out of order");
+            }
+        }
+        if (node.leaf) {
+            return 0;
+        }
+        int height = -1;
+        for (int i = 0; i <= node.n; i++) {
+            int childHeight = checkShape(node.children[i], false,
+                    i == 0 ? low : node.keys[i - 1], i == node.n ? high : node.keys[i]);
+            if (height >= 0 && childHeight != height) {
+                throw new IllegalStateException("Leaves under " + node + " are at different depths");
+            }
+            height = childHeight;
+        }
+        return height + 1;
+    }
+
     public void print() {
-        if (root == null || root.keys.isEmpty()) {
+        if (root == null || root.n == 0) {
             System.out.println("Tree (m=" + m + ") is empty.");
         } else {
             System.out.println("B-Tree (m=" + m + "):");
@@ -340,17 +1017,17 @@ public class BTree {
     }
 
     private void printRecursive(BTreeNode node, String indent) {
-        System.out.println(indent + node.keys);
+        System.out.println(indent + node);
 
         if (!node.leaf) {
             String childIndent = indent + "  ";
-            for (BTreeNode child : node.children) {
-                printRecursive(child, childIndent);
+            for (int i = 0; i <= node.n; i++) {
+                printRecursive(node.children[i], childIndent);
             }
         }
     }
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws JMException {
         System.out.println("==============================================");
         System.out.println("=          TEST 1: Order m = 4               =");
         System.out.println("==============================================");
@@ -409,5 +1086,97 @@ public class BTree {
 
         System.out.println("Step 5: Tree structure after deletions:");
         t5.print();
+        System.out.println("\n\n");
+
+
+        System.out.println("==============================================");
+        System.out.println("=       TEST 3: Bulk load m = 4, 1 to 20     =");
+        System.out.println("==============================================");
+
+        int[] sorted = new int[20];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = i + 1;
+        }
+        BTree bulk = BTree.bulkLoad(4, sorted, 1.0);
+        System.out.println("Step 1: Tree structure after bulk load:");
+        bulk.print();
+        System.out.println("\n\n");
+
+
+        System.out.println("==============================================");
+        System.out.println("=       TEST 4: Batch insert/delete m = 4    =");
+        System.out.println("==============================================");
+
+        BTree batch = new BTree(4);
+        int[] evens = new int[10];
+        int[] odds = new int[10];
+        for (int i = 0; i < 10; i++) {
+            evens[i] = 20 - 2 * i;
+            odds[i] = 2 * i + 1;
+        }
+        batch.insertAll(evens);
+        batch.insertAll(odds);
+        System.out.println("Step 1: Tree structure after inserting evens, then odds:");
+        batch.print();
+        System.out.println("----------------------------------------------");
+
+        batch.deleteAll(evens);
+        System.out.println("Step 2: Tree structure after deleting the evens in one batch:");
+        batch.print();
+        System.out.println();
+
+        System.out.println("==============================================");
+        System.out.println("=       TEST 5: Statistics m = 16            =");
+        System.out.println("==============================================");
+
+        BTree stats = new BTree(16);
+        for (int i = 0; i < 100_000; i++) {
+            stats.insert(i);
+        }
+        for (int i = 0; i < 100_000; i += 2) {
+            stats.search(i);
+        }
+        System.out.println("Step 1: After 100000 ascending inserts and 50000 searches:");
+        System.out.println(stats.stats());
+        System.out.println("----------------------------------------------");
+
+        stats.resetCounters();
+        for (int i = 0; i < 100_000; i++) {
+            if (i % 10 != 0) {
+                stats.delete(i);
+            }
+        }
+        System.out.println("Step 2: After deleting 90% of the keys:");
+        System.out.println(stats.stats());
+        System.out.println("----------------------------------------------");
+
+        ObjectName name = stats.registerMBean("test5", stats);
+        System.out.println("Step 3: Registered " + name + ", FillFactor = "
+                + ManagementFactory.getPlatformMBeanServer().getAttribute(name, "FillFactor"));
+        System.out.println("\n\n");
+
+
+        System.out.println("==============================================");
+        System.out.println("=          TEST 6: Order m = 3 (2-3 tree)    =");
+        System.out.println("==============================================");
+
+        BTree t3 = new BTree(3);
+        System.out.println("Step 1: Inserting 1 to 15");
+        for (int i = 1; i <= 15; i++) {
+            t3.insert(i);
+        }
+        t3.print();
+        System.out.println("----------------------------------------------");
+
+        System.out.println("Step 2: Deleting 8 (the root key), then every multiple of 3");
+        t3.delete(8);
+        for (int i = 3; i <= 15; i += 3) {
+            t3.delete(i);
+        }
+        t3.print();
+        System.out.println("----------------------------------------------");
+
+        System.out.println("Step 3: search(7) = " + t3.search(7) + ", search(8) = " + t3.search(8)
+                + ", search(9) = " + t3.search(9));
     }
 }
@@ -0,0 +1,268 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Small wall-clock benchmarks for the B-Tree variants. Each case is run a few
+ * times to warm up the JIT before the measured run. Before measuring anything,
+ * the variants are cross-checked against each other at small odd and even orders.
+ *
+ * Usage: java BTreeBenchmark [keys] [order]
+ */
+public class BTreeBenchmark {
+    private static final int WARMUP_ROUNDS = 3;
+    private static volatile int sink; // keeps search results observable so they are not optimized away
+
+    private static double millis(long start) {
+        return (System.nanoTime() - start) / 1_000_000.0;
+    }
+
+    /**
+     * Runs the same random inserts and deletes through BTree, PagedBTree,
+     * SnapshotBTree and ConcurrentBTree, checking every tree's shape and that
+     * all of them still agree with a plain bitmap on every key. Each variant has
+     * its own copy of the split and merge logic, so this is what catches one of
+     * them drifting.
+     */
+    static void crossCheck(int m, int ops, long seed) throws IOException {
+        int keyRange = ops / 2;
+        boolean[] expected = new boolean[keyRange];
+        Random random = new Random(seed);
+        Path file = Files.createTempFile("crosscheck", ".pages");
+        Files.delete(file); // PagedBTree creates the file itself
+
+        BTree plain = new BTree(m);
+        SnapshotBTree snapshots = new SnapshotBTree(m);
+        ConcurrentBTree concurrent = new ConcurrentBTree(m);
+        try (PagedBTree paged = new PagedBTree(file, m, 8)) {
+            for (int op = 1; op <= ops; op++) {
+                int key = random.nextInt(keyRange);
+                if (expected[key]) {
+                    plain.delete(key);
+                    paged.delete(key);
+                    snapshots.delete(key);
+                    concurrent.delete(key);
+                } else {
+                    plain.insert(key);
+                    paged.insert(key);
+                    snapshots.insert(key);
+                    concurrent.insert(key);
+                }
+                expected[key] = !expected[key];
+
+                if (op % (ops / 4) == 0) {
+                    plain.checkShape();
+                    paged.checkShape();
+                    snapshots.checkShape();
+                    concurrent.checkShape();
+                    for (int k = 0; k < keyRange; k++) {
+                        if (plain.search(k) != expected[k] || paged.search(k) != expected[k]
+                                || snapshots.search(k) != expected[k] || concurrent.search(k) != expected[k]) {
+                            throw new IllegalStateException("B-Tree variants disagree on key " + k
+                                    + " at m = " + m + " after " + op + " operations");
+                        }
+                    }
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        System.out.printf("m = %-3d: %d operations, all variants agree%n", m, ops);
+    }
+
+    /**
+     * Repeated insert() against bulkLoad() for the same sorted keys.
+     */
+    static void bulkLoadVsInsert(int count, int m) {
+        int[] keys = new int[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = i * 2;
+        }
+
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            BTree warm = new BTree(m);
+            for (int key : keys) {
+                warm.insert(key);
+            }
+            BTree.bulkLoad(m, keys, 1.0);
+        }
+
+        long start = System.nanoTime();
+        BTree inserted = new BTree(m);
+        for (int key : keys) {
+            inserted.insert(key);
+        }
+        double insertMs = millis(start);
+
+        start = System.nanoTime();
+        BTree loaded = BTree.bulkLoad(m, keys, 1.0);
+        double bulkMs = millis(start);
+
+        // touch both trees so neither build can be optimized away
+        if (!inserted.search(keys[count / 2]) || !loaded.search(keys[count / 2])) {
+            throw new IllegalStateException("Benchmark tree is missing a key.");
+        }
+
+        System.out.printf("%-24s: %10.2f ms%n", "insert() per key", insertMs);
+        System.out.printf("%-24s: %10.2f ms  (%.1fx faster)%n", "bulkLoad(fill = 1.0)", bulkMs, insertMs / bulkMs);
+    }
+
+    /**
+     * Per-key insert()/delete() against insertAll()/deleteAll() for clustered
+     * batches of `batchSize` keys landing in a tree of `count` keys.
+     */
+    static void batchVsSingle(int count, int m, int batchSize) {
+        int batches = 200;
+        int[][] work = new int[batches][batchSize];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int[] batch : work) {
+            int base = random.nextInt(count) * 2;
+            for (int i = 0; i < batchSize; i++) {
+                batch[i] = base + 2 * i + 1; // odd keys, clustered after `base`
+            }
+        }
+        int[] initial = new int[count];
+        for (int i = 0; i < count; i++) {
+            initial[i] = i * 2;
+        }
+
+        double singleMs = 0;
+        double batchMs = 0;
+        for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+            BTree single = BTree.bulkLoad(m, initial, 0.7);
+            long start = System.nanoTime();
+            for (int[] batch : work) {
+                for (int key : batch) {
+                    single.insert(key);
+                }
+            }
+            for (int[] batch : work) {
+                for (int key : batch) {
+                    single.delete(key);
+                }
+            }
+            singleMs = millis(start);
+
+            BTree batched = BTree.bulkLoad(m, initial, 0.7);
+            start = System.nanoTime();
+            for (int[] batch : work) {
+                batched.insertAll(batch);
+            }
+            for (int[] batch : work) {
+                batched.deleteAll(batch);
+            }
+            batchMs = millis(start);
+        }
+
+        System.out.printf("%-24s: %10.2f ms%n", "insert()/delete()", singleMs);
+        System.out.printf("%-24s: %10.2f ms  (%.1fx faster)%n", "insertAll()/deleteAll()", batchMs, singleMs / batchMs);
+    }
+
+    /**
+     * Runs `threads` workers that each do `opsPerThread` operations, one in
+     * `writeEvery` of them an insert and the rest searches.
+     * @return throughput in million operations per second
+     */
+    private static double runWorkers(int threads, int opsPerThread, int keyRange, int writeEvery,
+                                     IntPredicate search, IntConsumer insert) throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int hits = 0;
+                for (int op = 0; op < opsPerThread; op++) {
+                    int key = random.nextInt(keyRange);
+                    if (writeEvery > 0 && op % writeEvery == 0) {
+                        insert.accept(key | 1);
+                    } else if (search.test(key)) {
+                        hits++;
+                    }
+                }
+                sink = hits;
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return threads * (double) opsPerThread / seconds / 1e6;
+    }
+
+    /**
+     * Search throughput of ConcurrentBTree against a BTree behind one global lock,
+     * for 1, 2, 4, ... threads up to the number of available cores.
+     */
+    static void concurrentReads(int count, int m, int writeEvery) throws InterruptedException {
+        BTree locked = new BTree(m);
+        ConcurrentBTree concurrent = new ConcurrentBTree(m);
+        for (int i = 0; i < count; i++) {
+            locked.insert(i * 2);
+            concurrent.insert(i * 2);
+        }
+        Object globalLock = new Object();
+        IntPredicate lockedSearch = key -> {
+            synchronized (globalLock) {
+                return locked.search(key);
+            }
+        };
+        IntConsumer lockedInsert = key -> {
+            synchronized (globalLock) {
+                locked.insert(key);
+            }
+        };
+
+        int opsPerThread = 1_000_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        runWorkers(1, opsPerThread, count * 2, writeEvery, concurrent::search, concurrent::insert); // warm-up
+        runWorkers(1, opsPerThread, count * 2, writeEvery, lockedSearch, lockedInsert);
+
+        System.out.printf("%-8s  %16s  %16s%n", "threads", "global lock", "ConcurrentBTree");
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            double lockedOps = runWorkers(threads, opsPerThread, count * 2, writeEvery, lockedSearch, lockedInsert);
+            double concurrentOps = runWorkers(threads, opsPerThread, count * 2, writeEvery, concurrent::search, concurrent::insert);
+            System.out.printf("%-8d  %11.2f Mop/s  %11.2f Mop/s%n", threads, lockedOps, concurrentOps);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 128;
+
+        System.out.println("==============================================");
+        System.out.println("= Cross-check of the B-Tree variants");
+        System.out.println("==============================================");
+        for (int order : new int[] {3, 4, 5, 6, 7, m}) {
+            crossCheck(order, 20_000, order);
+        }
+        System.out.println();
+
+        System.out.println("==============================================");
+        System.out.println("= Bulk load vs insert: " + count + " keys, m = " + m);
+        System.out.println("==============================================");
+        bulkLoadVsInsert(count, m);
+        System.out.println();
+
+        System.out.println("==============================================");
+        System.out.println("= Clustered batches of 1000 keys, m = " + m);
+        System.out.println("==============================================");
+        batchVsSingle(count / 5, m, 1000);
+        System.out.println();
+
+        System.out.println("==============================================");
+        System.out.println("= Concurrent reads: " + count / 5 + " keys, m = " + m);
+        System.out.println("==============================================");
+        concurrentReads(count / 5, m, 0);
+        System.out.println();
+
+        System.out.println("==============================================");
+        System.out.println("= Concurrent 90% reads / 10% inserts");
+        System.out.println("==============================================");
+        concurrentReads(count / 5, m, 10);
+    }
+}
@@ -1,13 +1,54 @@
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 import java.util.Scanner;
+import java.util.Spliterator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class BinarySearchTree<Key extends Comparable> {
+public class BinarySearchTree<Key extends Comparable> implements Iterable<Key> {
+    /**
+     * How the tree keeps its shape. Plain insertion order (NONE) turns sorted
+     * input into a chain. A TREAP gives each node a random priority and keeps
+     * the priorities heap-ordered by rotations, which makes the tree look like
+     * one built from shuffled input: expected O(log n) depth whatever the input
+     * order. SPLAY rotates every word it inserts, searches or removes up to the
+     * root, so frequently used words stay near the top (amortized O(log n)).
+     * In SPLAY mode even treeSearch changes the tree, so iterators must not be
+     * used across a search.
+     */
+    public enum Balancing { NONE, TREAP, SPLAY }
+
+    private final Balancing balancing;
     private Node root;
+    private int size; // number of distinct words, i.e. nodes
+    private CountBucket lowest, highest; // ends of the frequency index, see topK()
+    private PrefixIndex prefixIndex; // optional, see enablePrefixIndex()
     private class Node {
         Key word;
         Node left, right;
         int counter; // might need a counter for duplicate keys
+        CountBucket bucket; // the bucket of nodes with this counter
+        Node prevSame, nextSame; // neighbours in that bucket
+        int priority; // TREAP only: a parent's priority is never below its children's
 
-        public Node(Key word) { this(null, null, word, 1); }
+        public Node(Key word) {
+            this(null, null, word, 1);
+            this.priority = ThreadLocalRandom.current().nextInt();
+        }
 
         public Node (Node left, Node right, Key word, int counter) {
             this.left = left;
@@ -17,32 +58,264 @@ public class BinarySearchTree<Key extends Comparable> {
         }
     }
 
-    BinarySearchTree() {}
+    /**
+     * The nodes whose counter is `count`, linked through Node.prevSame and
+     * Node.nextSame. The non-empty buckets form a list in count order, so when a
+     * counter goes up or down by one its node moves to a neighbouring bucket in
+     * O(1).
+     */
+    private class CountBucket {
+        final int count;
+        Node head;
+        CountBucket lower, higher;
+
+        CountBucket(int count) {
+            this.count = count;
+        }
+    }
+
+    BinarySearchTree() {
+        this(Balancing.NONE);
+    }
+
+    BinarySearchTree(Balancing balancing) {
+        this.balancing = balancing;
+    }
+
+    /**
+     * Builds a perfectly balanced tree without balancing from words in
+     * ascending order; see {@link #fromSorted(Iterator, Balancing)}.
+     */
+    public static <K extends Comparable> BinarySearchTree<K> fromSorted(Iterator<? extends K> sortedWords) {
+        return fromSorted(sortedWords, Balancing.NONE);
+    }
+
+    /**
+     * Builds a perfectly balanced tree from words in ascending order in O(n).
+     * Inserting sorted words one by one would instead degenerate into a linked
+     * list. Each run of equal words becomes one node whose counter is the run
+     * length, the same counter repeated treeInsert calls would leave.
+     *
+     * @param sortedWords Words in ascending order, duplicates allowed.
+     * @param balancing How the tree keeps its shape from then on. A TREAP is given
+     *        random priorities that are heap-ordered along the balanced shape.
+     * @throws IllegalArgumentException if a word is smaller than the one before it
+     */
+    public static <K extends Comparable> BinarySearchTree<K> fromSorted(Iterator<? extends K> sortedWords,
+                                                                      Balancing balancing) {
+        List<K> distinct = new ArrayList<>();
+        int[] counts = new int[16];
+        while (sortedWords.hasNext()) {
+            K word = sortedWords.next();
+            int last = distinct.size() - 1;
+            if (last >= 0) {
+                int cmp = word.compareTo(distinct.get(last));
+                if (cmp < 0) {
+                    throw new IllegalArgumentException("Words must be sorted: '" + word + "' after '"
+                            + distinct.get(last) + "'.");
+                }
+                if (cmp == 0) {
+                    counts[last]++;
+                    continue;
+                }
+            }
+            if (distinct.size() == counts.length) {
+                counts = Arrays.copyOf(counts, counts.length * 2);
+            }
+            counts[distinct.size()] = 1;
+            distinct.add(word);
+        }
+        BinarySearchTree<K> tree = new BinarySearchTree<>(balancing);
+        tree.buildFrom(distinct, counts);
+        return tree;
+    }
+
+    /**
+     * Replaces the (empty) tree with a perfectly balanced one holding the sorted,
+     * distinct `words` with their `counts`.
+     */
+    private void buildFrom(List<Key> words, int[] counts) {
+        root = build(words, counts, 0, words.size());
+        size = words.size();
+        if (balancing == Balancing.TREAP) {
+            assignPriorities();
+        }
+        indexCounts();
+    }
+
+    /**
+     * Gives every node of a freshly built tree a random priority, heap-ordered
+     * along its shape: `size` random priorities are sorted and handed out in
+     * level order, highest first, so no child outranks its parent.
+     */
+    private void assignPriorities() {
+        int[] priorities = ThreadLocalRandom.current().ints(size).sorted().toArray();
+        ArrayDeque<Node> queue = new ArrayDeque<>();
+        if (root != null) {
+            queue.add(root);
+        }
+        for (int i = size - 1; !queue.isEmpty(); i--) {
+            Node node = queue.poll();
+            node.priority = priorities[i];
+            if (node.left != null) {
+                queue.add(node.left);
+            }
+            if (node.right != null) {
+                queue.add(node.right);
+            }
+        }
+    }
+
+    private Node build(List<Key> words, int[] counts, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        return new Node(build(words, counts, from, mid), build(words, counts, mid + 1, to), words.get(mid), counts[mid]);
+    }
+
+    /**
+     * Merges the word counts of several trees into one new, perfectly balanced
+     * tree without balancing; see {@link #mergeCounts(List, Balancing)}.
+     */
+    public static <K extends Comparable> BinarySearchTree<K> mergeCounts(List<BinarySearchTree<K>> trees) {
+        return mergeCounts(trees, Balancing.NONE);
+    }
+
+    /**
+     * Merges the word counts of several trees into one new, perfectly balanced
+     * tree: the trees are walked in order side by side, the counters of equal
+     * words are added up, and the result is built like fromSorted(). This takes
+     * O(N * k) for N nodes in k trees, and the inputs are left unchanged.
+     *
+     * @param balancing How the merged tree keeps its shape from then on.
+     */
+    public static <K extends Comparable> BinarySearchTree<K> mergeCounts(List<BinarySearchTree<K>> trees,
+                                                                       Balancing balancing) {
+        List<BinarySearchTree<K>.Cursor> cursors = new ArrayList<>();
+        for (BinarySearchTree<K> tree : trees) {
+            cursors.add(tree.new Cursor(null, null, false));
+        }
+        List<K> words = new ArrayList<>();
+        int[] counts = new int[16];
+        while (true) {
+            K min = null;
+            for (BinarySearchTree<K>.Cursor cursor : cursors) {
+                if (cursor.hasNext() && (min == null || cursor.peek().compareTo(min) < 0)) {
+                    min = cursor.peek();
+                }
+            }
+            if (min == null) {
+                break;
+            }
+            int count = 0;
+            for (BinarySearchTree<K>.Cursor cursor : cursors) {
+                if (cursor.hasNext() && cursor.peek().compareTo(min) == 0) {
+                    count += cursor.nextNode().counter;
+                }
+            }
+            if (words.size() == counts.length) {
+                counts = Arrays.copyOf(counts, counts.length * 2);
+            }
+            counts[words.size()] = count;
+            words.add(min);
+        }
+        BinarySearchTree<K> merged = new BinarySearchTree<>(balancing);
+        merged.buildFrom(words, counts);
+        return merged;
+    }
+
+    /**
+     * Writes the words and their counters, in order, to a compressed,
+     * checksummed snapshot that {@link #load} turns back into a tree without one
+     * treeInsert per word. The words must be Strings. An existing file is
+     * replaced only once the new snapshot is complete.
+     */
+    public void save(Path file) throws IOException {
+        try (WordSnapshot.Writer writer = new WordSnapshot.Writer(file, WordSnapshot.BST, size)) {
+            for (Cursor cursor = new Cursor(null, null, false); cursor.hasNext(); ) {
+                Node node = cursor.nextNode();
+                writer.add((String) node.word, node.counter);
+            }
+            writer.finish();
+        }
+    }
+
+    /**
+     * Reads a snapshot written by {@link #save} into a tree without balancing;
+     * see {@link #load(Path, Balancing)}.
+     */
+    public static BinarySearchTree<String> load(Path file) throws IOException {
+        return load(file, Balancing.NONE);
+    }
+
+    /**
+     * Reads a snapshot written by {@link #save} and builds a perfectly balanced
+     * tree with the saved counters from it in O(n) (plus indexing the counts
+     * for topK).
+     *
+     * @param balancing How the loaded tree keeps its shape from then on.
+     * @throws IOException if the file cannot be read or fails its checks
+     */
+    public static BinarySearchTree<String> load(Path file, Balancing balancing) throws IOException {
+        WordSnapshot.Contents contents = WordSnapshot.read(file, WordSnapshot.BST);
+        BinarySearchTree<String> tree = new BinarySearchTree<>(balancing);
+        tree.buildFrom(contents.words, contents.counts);
+        return tree;
+    }
 
     public int treeInsert(Key word) {
-        int[] beforeCount = new int[1];
-        root = insert(root, word, beforeCount);
-        return beforeCount[0]; // return # of occurrences of word before insert
+        int before;
+        if (balancing == Balancing.SPLAY) {
+            before = splayInsert(word);
+        } else {
+            int[] beforeCount = new int[1];
+            root = insert(root, word, beforeCount);
+            before = beforeCount[0];
+        }
+        if (prefixIndex != null && before == 0) {
+            prefixIndex.add((String) word);
+        }
+        return before; // return # of occurrences of word before insert
     }
 
     private Node insert(Node node, Key word, int[] beforeCount) {
         if (node == null) {
             beforeCount[0] = 0;
-            return new Node(word);
+            return newNode(word);
         }
         int cmp = word.compareTo(node.word);
         if (cmp < 0) {
             node.left = insert(node.left, word, beforeCount);
+            if (balancing == Balancing.TREAP && node.left.priority > node.priority) {
+                node = rightRotate(node);
+            }
         } else if (cmp > 0) {
             node.right = insert(node.right, word, beforeCount);
+            if (balancing == Balancing.TREAP && node.right.priority > node.priority) {
+                node = leftRotate(node);
+            }
         } else {
             beforeCount[0] = node.counter;
             node.counter++;
+            recount(node);
         }
         return node;
     }
 
+    private Node newNode(Key word) {
+        size++;
+        Node created = new Node(word);
+        // 1 is the smallest count there is, so its bucket can only be the lowest
+        link(created, (lowest != null && lowest.count == 1) ? lowest : insertBucket(1, null, lowest));
+        return created;
+    }
+
     public int treeSearch(Key word) {
+        if (balancing == Balancing.SPLAY) {
+            root = splay(root, word);
+            return (root != null && word.compareTo(root.word) == 0) ? root.counter : 0;
+        }
         Node current = root;
         while (current != null) {
             int cmp = word.compareTo(current.word);
@@ -58,10 +331,18 @@ public class BinarySearchTree<Key extends Comparable> {
     }
 
     public int treeRemove(Key word) {
-        int[] beforeCount = new int[1];
-        beforeCount[0] = 0;
-        root = remove(root, word, beforeCount);
-        return beforeCount[0]; // return # of occurrences of word before deletion
+        int before;
+        if (balancing == Balancing.SPLAY) {
+            before = splayRemove(word);
+        } else {
+            int[] beforeCount = new int[1];
+            root = remove(root, word, beforeCount);
+            before = beforeCount[0];
+        }
+        if (prefixIndex != null && before == 1) { // the last occurrence is gone
+            prefixIndex.remove((String) word);
+        }
+        return before; // return # of occurrences of word before deletion
     }
 
     private Node remove(Node node, Key word, int[] beforeCount) {
@@ -75,27 +356,158 @@ public class BinarySearchTree<Key extends Comparable> {
             beforeCount[0] = node.counter;
             if (node.counter > 1) { // word has duplicates. decrement the counter.
                 node.counter--;
+                recount(node);
                 return node;
             }
             // counter is 1. delete the physical node
+            size--;
+            unlink(node);
             if (node.left == null) { // node with 0 or 1 child
                 return node.right;
             }
             if (node.right == null) { // node with 0 or 1 child
                 return node.left;
             }
+            if (balancing == Balancing.TREAP) {
+                return rotateOut(node);
+            }
             // node with 2 children:
             // 1. find the in-order successor (smallest node in the right subtree)
             Node successor = findMin(node.right);
             // 2. copy the successor data to this node
             node.word = successor.word;
             node.counter = successor.counter;
+            replace(successor, node); // the successor node goes away, this one takes its place in its bucket
             // 3. delete the successor from the right subtree
             node.right = deleteMin(node.right);
         }
         return node;
     }
 
+    /**
+     * Removes `node`, which has two children, from the treap rooted at it by
+     * rotating its higher-priority child above it until it has at most one.
+     */
+    private Node rotateOut(Node node) {
+        if (node.left == null) return node.right;
+        if (node.right == null) return node.left;
+        Node top;
+        if (node.left.priority > node.right.priority) {
+            top = rightRotate(node);
+            top.right = rotateOut(node);
+        } else {
+            top = leftRotate(node);
+            top.left = rotateOut(node);
+        }
+        return top;
+    }
+
+    private Node rightRotate(Node node) {
+        Node x = node.left;
+        node.left = x.right;
+        x.right = node;
+        return x;
+    }
+
+    private Node leftRotate(Node node) {
+        Node x = node.right;
+        node.right = x.left;
+        x.left = node;
+        return x;
+    }
+
+    // --> splay mode <--
+
+    /**
+     * Top-down splay: brings `word`, or the last node on its search path if it
+     * is missing, to the root of `node`'s subtree and returns it. Iterative, so
+     * the depth of the tree before splaying does not matter.
+     */
+    private Node splay(Node node, Key word) {
+        if (node == null) {
+            return null;
+        }
+        Node header = new Node(null, null, null, 0); // header.right/left collect the left/right trees
+        Node leftMax = header, rightMin = header;
+        while (true) {
+            int cmp = word.compareTo(node.word);
+            if (cmp < 0) {
+                if (node.left == null) break;
+                if (word.compareTo(node.left.word) < 0) { // zig-zig
+                    node = rightRotate(node);
+                    if (node.left == null) break;
+                }
+                rightMin.left = node; // everything from node down-right is greater than word
+                rightMin = node;
+                node = node.left;
+            } else if (cmp > 0) {
+                if (node.right == null) break;
+                if (word.compareTo(node.right.word) > 0) { // zig-zig
+                    node = leftRotate(node);
+                    if (node.right == null) break;
+                }
+                leftMax.right = node; // everything from node down-left is smaller than word
+                leftMax = node;
+                node = node.right;
+            } else {
+                break;
+            }
+        }
+        leftMax.right = node.left;
+        rightMin.left = node.right;
+        node.left = header.right;
+        node.right = header.left;
+        return node;
+    }
+
+    private int splayInsert(Key word) {
+        root = splay(root, word);
+        int cmp = (root == null) ? 0 : word.compareTo(root.word);
+        if (root != null && cmp == 0) {
+            root.counter++;
+            recount(root);
+            return root.counter - 1;
+        }
+        Node node = newNode(word);
+        if (root != null) { // the new word goes between root and its neighbour on one side
+            if (cmp < 0) {
+                node.left = root.left;
+                node.right = root;
+                root.left = null;
+            } else {
+                node.right = root.right;
+                node.left = root;
+                root.right = null;
+            }
+        }
+        root = node;
+        return 0;
+    }
+
+    private int splayRemove(Key word) {
+        root = splay(root, word);
+        if (root == null || word.compareTo(root.word) != 0) {
+            return 0; // Word not found
+        }
+        int beforeCount = root.counter;
+        if (root.counter > 1) { // word has duplicates. decrement the counter.
+            root.counter--;
+            recount(root);
+            return beforeCount;
+        }
+        size--;
+        unlink(root);
+        if (root.left == null) {
+            root = root.right;
+        } else {
+            // splaying the left subtree for `word` brings up its largest node, which has no right child
+            Node right = root.right;
+            root = splay(root.left, word);
+            root.right = right;
+        }
+        return beforeCount;
+    }
+
     private Node findMin(Node node) { // helper to find the node with the minimum key in a subtree.
         while (node.left != null) {
             node = node.left;
@@ -111,16 +523,378 @@ public class BinarySearchTree<Key extends Comparable> {
         return node;
     }
 
+    // --> frequency index <--
+
+    /**
+     * The `k` most frequent words with their counts, most frequent first. Words
+     * with equal counts come in no particular order. treeInsert and treeRemove
+     * keep the frequency index up to date, so this reads the top k nodes off the
+     * highest buckets in O(k), without looking at the rest of the tree.
+     */
+    public List<Map.Entry<Key, Integer>> topK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        List<Map.Entry<Key, Integer>> top = new ArrayList<>(Math.min(k, size));
+        for (CountBucket bucket = highest; bucket != null && top.size() < k; bucket = bucket.lower) {
+            for (Node node = bucket.head; node != null && top.size() < k; node = node.nextSame) {
+                top.add(new AbstractMap.SimpleImmutableEntry<>(node.word, node.counter));
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Moves `node` to the bucket for its new counter, which changed by one.
+     */
+    private void recount(Node node) {
+        CountBucket from = node.bucket;
+        CountBucket to;
+        if (node.counter > from.count) {
+            to = (from.higher != null && from.higher.count == node.counter)
+                    ? from.higher : insertBucket(node.counter, from, from.higher);
+        } else {
+            to = (from.lower != null && from.lower.count == node.counter)
+                    ? from.lower : insertBucket(node.counter, from.lower, from);
+        }
+        unlink(node);
+        link(node, to);
+    }
 
-    public void treeWalk() { // inorder traversal
-        treeWalkHelper(root);
+    private CountBucket insertBucket(int count, CountBucket lower, CountBucket higher) {
+        CountBucket bucket = new CountBucket(count);
+        bucket.lower = lower;
+        bucket.higher = higher;
+        if (lower != null) lower.higher = bucket; else lowest = bucket;
+        if (higher != null) higher.lower = bucket; else highest = bucket;
+        return bucket;
     }
 
-    private void treeWalkHelper(Node node) {
-        if (node == null) return;
-        treeWalkHelper(node.left);
-        System.out.printf("%s(%d)%n", node.word, node.counter);
-        treeWalkHelper(node.right);
+    private void link(Node node, CountBucket bucket) {
+        node.bucket = bucket;
+        node.prevSame = null;
+        node.nextSame = bucket.head;
+        if (bucket.head != null) {
+            bucket.head.prevSame = node;
+        }
+        bucket.head = node;
+    }
+
+    private void unlink(Node node) { // an emptied bucket is dropped from the list
+        CountBucket bucket = node.bucket;
+        if (node.prevSame != null) node.prevSame.nextSame = node.nextSame; else bucket.head = node.nextSame;
+        if (node.nextSame != null) node.nextSame.prevSame = node.prevSame;
+        node.bucket = null;
+        node.prevSame = node.nextSame = null;
+        if (bucket.head == null) {
+            if (bucket.lower != null) bucket.lower.higher = bucket.higher; else lowest = bucket.higher;
+            if (bucket.higher != null) bucket.higher.lower = bucket.lower; else highest = bucket.lower;
+        }
+    }
+
+    private void replace(Node old, Node node) { // `node` takes over the bucket slot of `old`
+        node.bucket = old.bucket;
+        node.prevSame = old.prevSame;
+        node.nextSame = old.nextSame;
+        if (old.prevSame != null) old.prevSame.nextSame = node; else old.bucket.head = node;
+        if (old.nextSame != null) old.nextSame.prevSame = node;
+    }
+
+    /**
+     * Builds the frequency index from scratch after a bulk build, in O(n log n).
+     */
+    private void indexCounts() {
+        List<Node> nodes = new ArrayList<>(size);
+        for (Cursor cursor = new Cursor(null, null, false); cursor.hasNext(); ) {
+            nodes.add(cursor.nextNode());
+        }
+        nodes.sort(Comparator.comparingInt(node -> node.counter));
+        lowest = highest = null;
+        for (Node node : nodes) {
+            link(node, (highest != null && highest.count == node.counter)
+                    ? highest : insertBucket(node.counter, highest, null));
+        }
+    }
+
+    // --> iteration <--
+
+    /**
+     * Lazy in-order cursor over the words in [lo, hi) or [lo, hi], with an
+     * explicit stack instead of recursion, so even a degenerate tree cannot
+     * overflow the call stack. A null bound is open. The cursor seeks to `lo`
+     * along one root-to-leaf path and then yields each word in amortized O(1).
+     */
+    private class Cursor implements Iterator<Key> {
+        private final ArrayDeque<Node> stack = new ArrayDeque<>();
+        private final Key hi;
+        private final boolean hiInclusive;
+
+        Cursor(Key lo, Key hi, boolean hiInclusive) {
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            Node node = root;
+            while (node != null) { // stack every node on the search path that is >= lo
+                if (lo == null || lo.compareTo(node.word) <= 0) {
+                    stack.push(node);
+                    node = node.left;
+                } else {
+                    node = node.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (stack.isEmpty()) {
+                return false;
+            }
+            if (hi == null) {
+                return true;
+            }
+            int cmp = stack.peek().word.compareTo(hi);
+            return cmp < 0 || (cmp == 0 && hiInclusive);
+        }
+
+        /**
+         * The word next() would return, without advancing.
+         */
+        Key peek() {
+            return stack.peek().word;
+        }
+
+        Node nextNode() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Node node = stack.pop();
+            for (Node n = node.right; n != null; n = n.left) {
+                stack.push(n);
+            }
+            return node;
+        }
+
+        @Override
+        public Key next() {
+            return nextNode().word;
+        }
+    }
+
+    /**
+     * Iterates all distinct words in order.
+     */
+    @Override
+    public Iterator<Key> iterator() {
+        return new Cursor(null, null, false);
+    }
+
+    /**
+     * Iterates the distinct words `w` with lo <= w <= hi in order, after seeking
+     * to `lo` along one path (O(log n) while the tree is balanced).
+     */
+    public Iterator<Key> range(Key lo, Key hi) {
+        return new Cursor(lo, hi, true);
+    }
+
+    // --> prefix queries <--
+
+    /**
+     * Iterates, in order, up to `limit` words starting with `prefix`. The words
+     * must be Strings. The scan seeks to the first word >= prefix in O(log n),
+     * then yields matches lazily and stops at the first word that does not
+     * match, since all words with a prefix are adjacent in order.
+     */
+    @SuppressWarnings("unchecked")
+    public Iterator<Key> prefixScan(String prefix, int limit) {
+        Cursor cursor = new Cursor((Key) prefix, null, false);
+        return new Iterator<Key>() {
+            private int returned;
+
+            @Override
+            public boolean hasNext() {
+                return returned < limit && cursor.hasNext() && ((String) cursor.peek()).startsWith(prefix);
+            }
+
+            @Override
+            public Key next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                returned++;
+                return cursor.next();
+            }
+        };
+    }
+
+    /**
+     * Keeps a {@link PrefixIndex} of the words from now on, built from the
+     * current words and updated by treeInsert and treeRemove, so complete()
+     * costs O(|prefix|) instead of O(log n) string comparisons. The words must
+     * be Strings. Trees built from this one (fromSorted, mergeCounts, load) do
+     * not inherit the index.
+     */
+    public void enablePrefixIndex() {
+        PrefixIndex index = new PrefixIndex();
+        for (Key word : this) {
+            index.add((String) word);
+        }
+        prefixIndex = index;
+    }
+
+    /**
+     * Up to `limit` words starting with `prefix`, in order: from the prefix
+     * index if it is enabled, otherwise from prefixScan.
+     */
+    public List<String> complete(String prefix, int limit) {
+        if (prefixIndex != null) {
+            return prefixIndex.complete(prefix, limit);
+        }
+        List<String> matches = new ArrayList<>();
+        for (Iterator<Key> it = prefixScan(prefix, limit); it.hasNext(); ) {
+            matches.add((String) it.next());
+        }
+        return matches;
+    }
+
+    /**
+     * The `k` most frequent words starting with `prefix`, most frequent first:
+     * "top N by count" autocompletion. The matches are streamed from
+     * prefixScan through a min-heap of size k, so this takes O(m log k) for m
+     * matching words.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Map.Entry<Key, Integer>> prefixTopK(String prefix, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        PriorityQueue<Node> heap = new PriorityQueue<>(Math.max(k, 1), Comparator.comparingInt(node -> node.counter));
+        if (k > 0) {
+            Cursor cursor = new Cursor((Key) prefix, null, false);
+            while (cursor.hasNext() && ((String) cursor.peek()).startsWith(prefix)) {
+                Node node = cursor.nextNode();
+                if (heap.size() < k) {
+                    heap.add(node);
+                } else if (node.counter > heap.peek().counter) {
+                    heap.poll();
+                    heap.add(node);
+                }
+            }
+        }
+        List<Map.Entry<Key, Integer>> top = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            Node node = heap.poll();
+            top.add(new AbstractMap.SimpleImmutableEntry<>(node.word, node.counter));
+        }
+        Collections.reverse(top);
+        return top;
+    }
+
+    /**
+     * Spliterator over the words in [lo, hi). It splits at the highest node
+     * strictly inside its range, i.e. at a subtree boundary. Without subtree
+     * sizes the halves are only estimated, as half of the parent each.
+     */
+    private class TreeSpliterator implements Spliterator<Key> {
+        private Key lo, hi;
+        private long estimate;
+        private Cursor cursor; // created once traversal starts, after which it no longer splits
+
+        TreeSpliterator(Key lo, Key hi, long estimate) {
+            this.lo = lo;
+            this.hi = hi;
+            this.estimate = estimate;
+        }
+
+        @Override
+        public Spliterator<Key> trySplit() {
+            if (cursor != null || estimate < 2) {
+                return null;
+            }
+            Node node = root;
+            while (node != null) {
+                if (lo != null && node.word.compareTo(lo) <= 0) {
+                    node = node.right;
+                } else if (hi != null && node.word.compareTo(hi) >= 0) {
+                    node = node.left;
+                } else {
+                    estimate -= estimate / 2;
+                    TreeSpliterator prefix = new TreeSpliterator(lo, node.word, estimate);
+                    lo = node.word;
+                    return prefix;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Key> action) {
+            if (cursor == null) {
+                cursor = new Cursor(lo, hi, false);
+            }
+            if (!cursor.hasNext()) {
+                return false;
+            }
+            action.accept(cursor.next());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Key> action) {
+            if (cursor == null) {
+                cursor = new Cursor(lo, hi, false);
+            }
+            while (cursor.hasNext()) {
+                action.accept(cursor.next());
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | SORTED | NONNULL;
+        }
+
+        @Override
+        public Comparator<? super Key> getComparator() {
+            return null; // natural order
+        }
+    }
+
+    @Override
+    public Spliterator<Key> spliterator() {
+        return new TreeSpliterator(null, null, size);
+    }
+
+    /**
+     * Sequential stream of the distinct words in order.
+     */
+    public Stream<Key> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Parallel stream of the distinct words; the spliterator hands out subtrees.
+     */
+    public Stream<Key> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Number of distinct words in the tree.
+     */
+    public int size() {
+        return size;
+    }
+
+    public void treeWalk() { // inorder traversal, iterative so a degenerate tree cannot overflow the stack
+        Cursor cursor = new Cursor(null, null, false);
+        while (cursor.hasNext()) {
+            Node node = cursor.nextNode();
+            System.out.printf("%s(%d)%n", node.word, node.counter);
+        }
     }
 
     public void printTree() {
@@ -139,7 +913,9 @@ public class BinarySearchTree<Key extends Comparable> {
 
     // User Interface
     public static void main(String[] args) {
-        BinarySearchTree<String> bst = new BinarySearchTree<>();
+        // optional argument: none, treap or splay
+        Balancing balancing = (args.length > 0) ? Balancing.valueOf(args[0].toUpperCase()) : Balancing.NONE;
+        BinarySearchTree<String> bst = new BinarySearchTree<>(balancing);
         Scanner scanner = new Scanner(System.in);
         boolean running = true;
 
@@ -150,6 +926,11 @@ public class BinarySearchTree<Key extends Comparable> {
             System.out.println("3. Delete word");
             System.out.println("4. Tree walk");
             System.out.println("5. Print tree");
+            System.out.println("6. Load words from file");
+            System.out.println("7. Most frequent words");
+            System.out.println("8. Save snapshot");
+            System.out.println("9. Load snapshot");
+            System.out.println("10. Complete prefix");
             System.out.println("0. Exit");
             System.out.print("Enter your choice: ");
 
@@ -201,6 +982,69 @@ public class BinarySearchTree<Key extends Comparable> {
                     bst.printTree();
                     break;
 
+                case 6:
+                    System.out.print("Enter file to load: ");
+                    String file = scanner.nextLine().trim();
+                    if (file.isEmpty()) continue;
+                    try {
+                        long start = System.nanoTime();
+                        long loaded = WordIngest.ingest(bst, Path.of(file));
+                        double seconds = (System.nanoTime() - start) / 1e9;
+                        System.out.printf("Loaded %d words (%.0f words/sec), %d distinct in the tree.%n",
+                                loaded, loaded / seconds, bst.size());
+                    } catch (IOException | InvalidPathException e) {
+                        System.out.println("Could not read '" + file + "': " + e.getMessage());
+                    }
+                    break;
+
+                case 7:
+                    System.out.print("How many words: ");
+                    int k;
+                    try {
+                        k = Integer.parseInt(scanner.nextLine().trim());
+                    } catch (NumberFormatException e) {
+                        System.out.println("Invalid input. Please enter a number.");
+                        continue;
+                    }
+                    if (k < 0) continue;
+                    for (Map.Entry<String, Integer> entry : bst.topK(k)) {
+                        System.out.printf("%s(%d)%n", entry.getKey(), entry.getValue());
+                    }
+                    break;
+
+                case 8:
+                    System.out.print("Enter snapshot file to write: ");
+                    String target = scanner.nextLine().trim();
+                    if (target.isEmpty()) continue;
+                    try {
+                        bst.save(Path.of(target));
+                        System.out.println("Saved " + bst.size() + " words to '" + target + "'.");
+                    } catch (IOException | InvalidPathException e) {
+                        System.out.println("Could not write '" + target + "': " + e.getMessage());
+                    }
+                    break;
+
+                case 9:
+                    System.out.print("Enter snapshot file to load: ");
+                    String source = scanner.nextLine().trim();
+                    if (source.isEmpty()) continue;
+                    try {
+                        long start = System.nanoTime();
+                        bst = BinarySearchTree.load(Path.of(source), balancing);
+                        System.out.printf("Loaded %d words in %.3f s.%n", bst.size(), (System.nanoTime() - start) / 1e9);
+                    } catch (IOException | InvalidPathException e) {
+                        System.out.println("Could not load '" + source + "': " + e.getMessage());
+                    }
+                    break;
+
+                case 10:
+                    System.out.print("Enter prefix: ");
+                    String prefix = scanner.nextLine().trim().toLowerCase();
+                    for (Map.Entry<String, Integer> entry : bst.prefixTopK(prefix, 10)) {
+                        System.out.printf("%s(%d)%n", entry.getKey(), entry.getValue());
+                    }
+                    break;
+
                 case 0:
                     running = false;
                     System.out.println("Exiting...");
@@ -0,0 +1,107 @@
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Times BinarySearchTree in each {@link BinarySearchTree.Balancing} mode on
+ * three word feeds: sorted words, the same words shuffled, and a Zipfian feed
+ * where a few hot words make up most of the stream. Each feed is counted with
+ * treeInsert and then looked up again word by word with treeSearch.
+ *
+ * Unbalanced trees turn sorted input into a chain, so a run that overflows the
+ * stack or would take far too long is reported instead of timed.
+ *
+ * Usage: java BinarySearchTreeBenchmark [words]
+ */
+public class BinarySearchTreeBenchmark {
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int CHAIN_LIMIT = 20_000; // sorted feeds longer than this are not run without balancing
+    private static final double ZIPF_EXPONENT = 1.0;
+    private static volatile long sink; // keeps search results observable so they are not optimized away
+
+    private static String[] distinctWords(int count) {
+        String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            words[i] = String.format("w%08d", i); // zero-padded, so the array is in sorted order
+        }
+        return words;
+    }
+
+    private static String[] shuffled(String[] words) {
+        String[] copy = words.clone();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = copy.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            String tmp = copy[i];
+            copy[i] = copy[j];
+            copy[j] = tmp;
+        }
+        return copy;
+    }
+
+    /**
+     * `length` draws from `vocabulary`, where the word of rank r comes up with
+     * probability proportional to 1 / r^ZIPF_EXPONENT.
+     */
+    private static String[] zipfian(String[] vocabulary, int length) {
+        String[] hot = shuffled(vocabulary); // rank order unrelated to word order
+        double[] cumulative = new double[hot.length];
+        double total = 0;
+        for (int rank = 0; rank < hot.length; rank++) {
+            total += 1.0 / Math.pow(rank + 1, ZIPF_EXPONENT);
+            cumulative[rank] = total;
+        }
+        String[] feed = new String[length];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < length; i++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            feed[i] = hot[(rank >= 0) ? rank : Math.min(-rank - 1, hot.length - 1)];
+        }
+        return feed;
+    }
+
+    private static long run(BinarySearchTree.Balancing balancing, String[] feed) {
+        BinarySearchTree<String> tree = new BinarySearchTree<>(balancing);
+        for (String word : feed) {
+            tree.treeInsert(word);
+        }
+        long hits = 0;
+        for (String word : feed) {
+            hits += tree.treeSearch(word);
+        }
+        return hits;
+    }
+
+    private static void measure(String name, String[] feed, boolean sorted) {
+        for (BinarySearchTree.Balancing balancing : BinarySearchTree.Balancing.values()) {
+            String label = String.format("%-8s %-6s", name, balancing.name().toLowerCase());
+            if (sorted && balancing == BinarySearchTree.Balancing.NONE && feed.length > CHAIN_LIMIT) {
+                System.out.printf("%s: skipped, a %d-node chain would take O(n^2) and overflow the stack%n",
+                        label, feed.length);
+                continue;
+            }
+            try {
+                for (int round = 0; round < WARMUP_ROUNDS; round++) {
+                    sink = run(balancing, feed);
+                }
+                long start = System.nanoTime();
+                sink = run(balancing, feed);
+                double ms = (System.nanoTime() - start) / 1_000_000.0;
+                System.out.printf("%s: %10.2f ms  %8.0f ns/op%n", label, ms, ms * 1e6 / (2.0 * feed.length));
+            } catch (StackOverflowError e) {
+                System.out.printf("%s: StackOverflowError%n", label);
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        String[] words = distinctWords(count);
+
+        System.out.println("==============================================");
+        System.out.println("= " + count + " words, each inserted then searched");
+        System.out.println("==============================================");
+        measure("sorted", words, true);
+        measure("random", shuffled(words), false);
+        measure("zipfian", zipfian(distinctWords(Math.max(1, count / 10)), count), false);
+    }
+}
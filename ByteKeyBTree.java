@@ -0,0 +1,595 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Key/value B+ tree over variable-length byte[] keys, e.g. UTF-8 encoded words.
+ *
+ * Nodes are sized in bytes rather than by a fixed order: a node splits once its
+ * encoded size passes `pageBytes`. Two things keep that size down so more
+ * entries, and therefore more children, fit in a node:
+ * - prefix compression: every node stores the prefix its keys have in common
+ *   once and keeps only the remaining suffix of each key;
+ * - separator truncation: when a leaf splits, the separator pushed up is the
+ *   shortest byte string between the two halves rather than a whole key.
+ *
+ * Keys are compared as unsigned bytes (which for UTF-8 is code point order) and
+ * are never decoded. Values are stored inline in the leaves; store an encoded
+ * offset as the value to keep large payloads out of the tree.
+ */
+public class ByteKeyBTree {
+    private static final byte[] EMPTY = new byte[0];
+    private static final int NODE_HEADER = 8; // entry count + prefix length
+    private static final int SLOT_OVERHEAD = 2; // length field per stored suffix or value
+
+    private Node root;
+    private final int pageBytes;
+    private final int minBytes;
+    private int size;
+
+    private abstract class Node {
+        byte[] prefix = EMPTY;
+        byte[][] suffixes = new byte[8][];
+        int n;
+
+        /**
+         * Binary search for `key`, comparing raw bytes against the node prefix
+         * first and then against the stored suffixes.
+         * @return the index of the key, or -(insertion point) - 1 if absent
+         */
+        int find(byte[] key) {
+            int p = prefix.length;
+            int cmp = Arrays.compareUnsigned(key, 0, Math.min(key.length, p), prefix, 0, p);
+            if (cmp < 0) {
+                return -1;
+            }
+            if (cmp > 0) {
+                return -n - 1;
+            }
+            int lo = 0;
+            int hi = n - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                byte[] suffix = suffixes[mid];
+                int c = Arrays.compareUnsigned(key, p, key.length, suffix, 0, suffix.length);
+                if (c > 0) {
+                    lo = mid + 1;
+                } else if (c < 0) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -lo - 1;
+        }
+
+        /**
+         * Reassembles the full key at `index` from the prefix and its suffix.
+         */
+        byte[] key(int index) {
+            byte[] suffix = suffixes[index];
+            byte[] key = Arrays.copyOf(prefix, prefix.length + suffix.length);
+            System.arraycopy(suffix, 0, key, prefix.length, suffix.length);
+            return key;
+        }
+
+        byte[][] keys() {
+            byte[][] keys = new byte[n][];
+            for (int i = 0; i < n; i++) {
+                keys[i] = key(i);
+            }
+            return keys;
+        }
+
+        /**
+         * Replaces all keys with keys[from, to), which must be sorted. The common
+         * prefix of sorted keys is the common prefix of the first and the last.
+         */
+        void loadKeys(byte[][] keys, int from, int to) {
+            int count = to - from;
+            prefix = (count == 0) ? EMPTY : commonPrefix(keys[from], keys[to - 1]);
+            suffixes = new byte[Math.max(8, count)][];
+            for (int i = 0; i < count; i++) {
+                suffixes[i] = Arrays.copyOfRange(keys[from + i], prefix.length, keys[from + i].length);
+            }
+            n = count;
+        }
+
+        /**
+         * Inserts `key` at `index`. If the key does not share the node prefix, the
+         * prefix is shortened and the stored suffixes are rebuilt.
+         */
+        void insertKey(int index, byte[] key) {
+            if (!startsWith(key, prefix)) {
+                byte[][] keys = Arrays.copyOf(keys(), n + 1);
+                System.arraycopy(keys, index, keys, index + 1, n - index);
+                keys[index] = key;
+                loadKeys(keys, 0, n + 1);
+                return;
+            }
+            if (n == suffixes.length) {
+                suffixes = Arrays.copyOf(suffixes, n * 2);
+            }
+            System.arraycopy(suffixes, index, suffixes, index + 1, n - index);
+            suffixes[index] = Arrays.copyOfRange(key, prefix.length, key.length);
+            n++;
+        }
+
+        void removeKey(int index) {
+            System.arraycopy(suffixes, index + 1, suffixes, index, n - index - 1);
+            suffixes[--n] = null;
+        }
+
+        /**
+         * Encoded size of the node: header, prefix once, then every suffix.
+         */
+        int bytes() {
+            int bytes = NODE_HEADER + prefix.length;
+            for (int i = 0; i < n; i++) {
+                bytes += SLOT_OVERHEAD + suffixes[i].length;
+            }
+            return bytes;
+        }
+
+        abstract boolean isLeaf();
+    }
+
+    private class LeafNode extends Node {
+        byte[][] values = new byte[8][];
+
+        @Override
+        boolean isLeaf() {
+            return true;
+        }
+
+        void insert(int index, byte[] key, byte[] value) {
+            insertKey(index, key);
+            if (values.length < suffixes.length) {
+                values = Arrays.copyOf(values, suffixes.length);
+            }
+            System.arraycopy(values, index, values, index + 1, n - 1 - index);
+            values[index] = value;
+        }
+
+        void remove(int index) {
+            System.arraycopy(values, index + 1, values, index, n - index - 1);
+            values[n - 1] = null;
+            removeKey(index);
+        }
+
+        void load(byte[][] keys, byte[][] vals, int from, int to) {
+            loadKeys(keys, from, to);
+            values = Arrays.copyOf(Arrays.copyOfRange(vals, from, to), suffixes.length);
+        }
+
+        @Override
+        int bytes() {
+            int bytes = super.bytes();
+            for (int i = 0; i < n; i++) {
+                bytes += SLOT_OVERHEAD + values[i].length;
+            }
+            return bytes;
+        }
+    }
+
+    private class InternalNode extends Node {
+        Node[] children = new Node[9];
+
+        @Override
+        boolean isLeaf() {
+            return false;
+        }
+
+        /**
+         * Separators are lower bounds of their right subtree, so an exact match goes right.
+         */
+        int childIndex(byte[] key) {
+            int i = find(key);
+            return (i >= 0) ? i + 1 : -i - 1;
+        }
+
+        void insert(int index, byte[] separator, Node right) {
+            insertKey(index, separator);
+            if (children.length < suffixes.length + 1) {
+                children = Arrays.copyOf(children, suffixes.length + 1);
+            }
+            System.arraycopy(children, index + 1, children, index + 2, n - 1 - index);
+            children[index + 1] = right;
+        }
+
+        /**
+         * Removes the separator at `index` together with the child to its right.
+         */
+        void remove(int index) {
+            System.arraycopy(children, index + 2, children, index + 1, n - index - 1);
+            children[n] = null;
+            removeKey(index);
+        }
+
+        void load(byte[][] keys, Node[] kids, int from, int to) {
+            loadKeys(keys, from, to);
+            children = Arrays.copyOf(Arrays.copyOfRange(kids, from, to + 1), suffixes.length + 1);
+        }
+
+        @Override
+        int bytes() {
+            return super.bytes() + (n + 1) * Integer.BYTES;
+        }
+    }
+
+    /**
+     * The result of splitting a node: the separator and the new right half.
+     */
+    private static class Split {
+        final byte[] separator;
+        final Node right;
+
+        Split(byte[] separator, Node right) {
+            this.separator = separator;
+            this.right = right;
+        }
+    }
+
+    /**
+     * Constructor for the byte-key B+ tree.
+     * @param pageBytes Target encoded size of a node in bytes (at least 64).
+     */
+    public ByteKeyBTree(int pageBytes) {
+        if (pageBytes < 64) {
+            throw new IllegalArgumentException("Page size must be at least 64 bytes.");
+        }
+        this.pageBytes = pageBytes;
+        this.minBytes = pageBytes / 4;
+        this.root = new LeafNode();
+    }
+
+    // --> byte helpers <--
+
+    private static boolean startsWith(byte[] key, byte[] prefix) {
+        return key.length >= prefix.length
+                && Arrays.equals(key, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    private static byte[] commonPrefix(byte[] a, byte[] b) {
+        int mismatch = Arrays.mismatch(a, b);
+        return (mismatch < 0) ? a.clone() : Arrays.copyOf(a, mismatch);
+    }
+
+    /**
+     * Shortest byte string `s` with `left < s <= right`, used as the separator
+     * between two leaves. It is `right` cut one byte past where it first differs
+     * from `left`.
+     */
+    private static byte[] shortestSeparator(byte[] left, byte[] right) {
+        int mismatch = Arrays.mismatch(left, right);
+        return Arrays.copyOf(right, mismatch + 1);
+    }
+
+    public static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // --> lookups <--
+
+    /**
+     * Number of key/value pairs in the tree.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Looks up the value stored for `key`.
+     *
+     * @param key The key to search for.
+     * @return the value, or null if the key is not present.
+     */
+    public byte[] get(byte[] key) {
+        Node node = root;
+        while (!node.isLeaf()) {
+            InternalNode internal = (InternalNode) node;
+            node = internal.children[internal.childIndex(key)];
+        }
+        int i = node.find(key);
+        return (i >= 0) ? ((LeafNode) node).values[i] : null;
+    }
+
+    // --> insertion <--
+
+    /**
+     * Stores `value` under `key`, replacing any previous value.
+     *
+     * @param key The key, compared as unsigned bytes.
+     * @param value The value to store inline.
+     * @return the previous value, or null if the key was not present.
+     */
+    public byte[] put(byte[] key, byte[] value) {
+        // bounding entries to a quarter page keeps both halves of a split at least a quarter full
+        if (NODE_HEADER + 2 * SLOT_OVERHEAD + key.length + value.length > minBytes) {
+            throw new IllegalArgumentException("Entry of " + (key.length + value.length)
+                    + " bytes is too large for " + pageBytes + "-byte pages.");
+        }
+        byte[][] previous = new byte[1][];
+        Split split = insert(root, key, value, previous);
+        updateRoot(split);
+        if (previous[0] == null) {
+            size++;
+        }
+        return previous[0];
+    }
+
+    /**
+     * Grows the tree by a level if the root split, or shrinks it if a merge left
+     * the root without separators.
+     */
+    private void updateRoot(Split split) {
+        if (split != null) {
+            InternalNode newRoot = new InternalNode();
+            newRoot.children[0] = root;
+            newRoot.insert(0, split.separator, split.right);
+            root = newRoot;
+        } else if (!root.isLeaf() && root.n == 0) {
+            root = ((InternalNode) root).children[0];
+        }
+    }
+
+    private Split insert(Node node, byte[] key, byte[] value, byte[][] previous) {
+        if (node.isLeaf()) {
+            LeafNode leaf = (LeafNode) node;
+            int i = leaf.find(key);
+            if (i >= 0) {
+                previous[0] = leaf.values[i];
+                leaf.values[i] = value;
+            } else {
+                leaf.insert(-i - 1, key, value);
+            }
+            return (leaf.bytes() > pageBytes) ? splitLeaf(leaf) : null;
+        }
+
+        InternalNode internal = (InternalNode) node;
+        int i = internal.childIndex(key);
+        Split split = insert(internal.children[i], key, value, previous);
+        return afterChildUpdate(internal, i, split);
+    }
+
+    /**
+     * Restores the size bounds of `parent` after its child at `childIndex` was
+     * updated: takes in the child's split, or rebalances the child if it shrank
+     * below a quarter page (replacing a value with a shorter one can do that).
+     * @return the split of `parent` itself if it no longer fits in a page
+     */
+    private Split afterChildUpdate(InternalNode parent, int childIndex, Split split) {
+        if (split != null) {
+            parent.insert(childIndex, split.separator, split.right);
+        } else {
+            Node child = parent.children[childIndex];
+            if (child.n == 0 || child.bytes() < minBytes) {
+                rebalance(parent, childIndex);
+            }
+        }
+        return (parent.bytes() > pageBytes) ? splitInternal(parent) : null;
+    }
+
+    /**
+     * Index at which to cut `bytes` entries so both halves carry about the same
+     * number of bytes, keeping at least `minLeft` entries on the left and one on
+     * the right.
+     */
+    private static int balancedCut(int[] bytes, int count, int minLeft) {
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += bytes[i];
+        }
+        long running = 0;
+        int cut = 0;
+        while (cut < count - 1 && (cut < minLeft || running + bytes[cut] / 2 < total / 2)) {
+            running += bytes[cut++];
+        }
+        return cut;
+    }
+
+    private Split splitLeaf(LeafNode leaf) {
+        byte[][] keys = leaf.keys();
+        byte[][] values = Arrays.copyOf(leaf.values, leaf.n);
+        return resplitLeaves(leaf, new LeafNode(), keys, values);
+    }
+
+    /**
+     * Divides the sorted entries between `left` and `right` by bytes and returns
+     * the truncated separator for the new boundary.
+     */
+    private Split resplitLeaves(LeafNode left, LeafNode right, byte[][] keys, byte[][] values) {
+        int count = keys.length;
+        int[] bytes = new int[count];
+        for (int i = 0; i < count; i++) {
+            bytes[i] = 2 * SLOT_OVERHEAD + keys[i].length + values[i].length;
+        }
+        int cut = balancedCut(bytes, count, 1);
+        left.load(keys, values, 0, cut);
+        right.load(keys, values, cut, count);
+        return new Split(shortestSeparator(keys[cut - 1], keys[cut]), right);
+    }
+
+    private Split splitInternal(InternalNode node) {
+        byte[][] keys = node.keys();
+        Node[] children = Arrays.copyOf(node.children, node.n + 1);
+        return resplitInternal(node, new InternalNode(), keys, children);
+    }
+
+    /**
+     * Divides separators and children between `left` and `right`; the separator
+     * at the cut moves up to the parent.
+     */
+    private Split resplitInternal(InternalNode left, InternalNode right, byte[][] keys, Node[] children) {
+        int count = keys.length;
+        int[] bytes = new int[count];
+        for (int i = 0; i < count; i++) {
+            bytes[i] = SLOT_OVERHEAD + keys[i].length + Integer.BYTES;
+        }
+        int cut = balancedCut(bytes, count - 1, 1);
+        byte[] up = keys[cut];
+        left.load(keys, children, 0, cut);
+        byte[][] rightKeys = Arrays.copyOfRange(keys, cut + 1, count);
+        Node[] rightChildren = Arrays.copyOfRange(children, cut + 1, count + 1);
+        right.load(rightKeys, rightChildren, 0, rightKeys.length);
+        return new Split(up, right);
+    }
+
+    // --> deletion <--
+
+    /**
+     * Removes `key` and its value.
+     *
+     * @param key The key to delete.
+     * @return the removed value, or null if the key was not present.
+     */
+    public byte[] remove(byte[] key) {
+        byte[][] removed = new byte[1][];
+        updateRoot(remove(root, key, removed));
+        if (removed[0] != null) {
+            size--;
+        }
+        return removed[0];
+    }
+
+    private Split remove(Node node, byte[] key, byte[][] removed) {
+        if (node.isLeaf()) {
+            LeafNode leaf = (LeafNode) node;
+            int i = leaf.find(key);
+            if (i >= 0) {
+                removed[0] = leaf.values[i];
+                leaf.remove(i);
+            }
+            return null;
+        }
+
+        // rebalancing can replace a separator with a longer one, so deletes may split too
+        InternalNode parent = (InternalNode) node;
+        int i = parent.childIndex(key);
+        Split split = remove(parent.children[i], key, removed);
+        return afterChildUpdate(parent, i, split);
+    }
+
+    /**
+     * Merges the underfull child at `childIndex` with a neighbour if the result
+     * fits in one page, otherwise spreads their entries evenly over the two. The
+     * merged size is measured after loading because the shared prefix may shrink.
+     */
+    private void rebalance(InternalNode parent, int childIndex) {
+        if (parent.n == 0) {
+            return;
+        }
+        int left = (childIndex > 0) ? childIndex - 1 : childIndex;
+        Node a = parent.children[left];
+        Node b = parent.children[left + 1];
+        byte[] separator = parent.key(left);
+
+        if (a.isLeaf()) {
+            LeafNode l = (LeafNode) a;
+            LeafNode r = (LeafNode) b;
+            byte[][] keys = concat(l.keys(), r.keys(), null);
+            byte[][] values = concat(Arrays.copyOf(l.values, l.n), Arrays.copyOf(r.values, r.n), null);
+            l.load(keys, values, 0, keys.length);
+            if (l.bytes() <= pageBytes || keys.length < 2) {
+                parent.remove(left);
+            } else {
+                Split split = resplitLeaves(l, r, keys, values);
+                replaceSeparator(parent, left, split.separator);
+            }
+        } else {
+            InternalNode l = (InternalNode) a;
+            InternalNode r = (InternalNode) b;
+            byte[][] keys = concat(l.keys(), r.keys(), separator);
+            Node[] children = new Node[keys.length + 1];
+            System.arraycopy(l.children, 0, children, 0, l.n + 1);
+            System.arraycopy(r.children, 0, children, l.n + 1, r.n + 1);
+            l.load(keys, children, 0, keys.length);
+            if (l.bytes() <= pageBytes || keys.length < 3) {
+                parent.remove(left);
+            } else {
+                Split split = resplitInternal(l, r, keys, children);
+                replaceSeparator(parent, left, split.separator);
+            }
+        }
+    }
+
+    private void replaceSeparator(InternalNode parent, int index, byte[] separator) {
+        Node right = parent.children[index + 1];
+        parent.remove(index);
+        parent.insert(index, separator, right);
+    }
+
+    /**
+     * Concatenates two sorted key runs, optionally with a separator between them.
+     */
+    private static byte[][] concat(byte[][] a, byte[][] b, byte[] middle) {
+        int extra = (middle != null) ? 1 : 0;
+        byte[][] all = new byte[a.length + extra + b.length][];
+        System.arraycopy(a, 0, all, 0, a.length);
+        if (middle != null) {
+            all[a.length] = middle;
+        }
+        System.arraycopy(b, 0, all, a.length + extra, b.length);
+        return all;
+    }
+
+    // --> printing <--
+
+    public void print() {
+        if (size == 0) {
+            System.out.println("Tree (" + pageBytes + "-byte pages) is empty.");
+        } else {
+            System.out.println("Byte-key B+ Tree (" + pageBytes + "-byte pages), shown as prefix|suffixes:");
+            printRecursive(root, "");
+        }
+    }
+
+    private void printRecursive(Node node, String indent) {
+        StringBuilder sb = new StringBuilder(indent);
+        sb.append('"').append(new String(node.prefix, StandardCharsets.UTF_8)).append("\"|[");
+        for (int i = 0; i < node.n; i++) {
+            sb.append(i > 0 ? ", " : "").append(new String(node.suffixes[i], StandardCharsets.UTF_8));
+        }
+        System.out.println(sb.append(']'));
+
+        if (!node.isLeaf()) {
+            InternalNode internal = (InternalNode) node;
+            for (int i = 0; i <= internal.n; i++) {
+                printRecursive(internal.children[i], indent + "  ");
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        System.out.println("==============================================");
+        System.out.println("=     BYTE-KEY B+ TREE: 128-byte pages       =");
+        System.out.println("==============================================");
+
+        ByteKeyBTree tree = new ByteKeyBTree(128);
+        String[] words = {
+                "interstellar", "internal", "internet", "interval", "interview",
+                "intern", "interface", "interim", "interior", "interlude",
+                "apple", "application", "apply", "banana", "band", "bandwidth"
+        };
+        System.out.println("Step 1: Inserting " + words.length + " words with their lengths as values");
+        for (String word : words) {
+            tree.put(utf8(word), utf8(Integer.toString(word.length())));
+        }
+        tree.print();
+        System.out.println("----------------------------------------------");
+
+        System.out.println("Step 2: Lookups");
+        for (String word : new String[]{"interview", "band", "inter"}) {
+            byte[] value = tree.get(utf8(word));
+            System.out.println(word + " -> " + (value == null ? "not found" : new String(value, StandardCharsets.UTF_8)));
+        }
+        System.out.println("----------------------------------------------");
+
+        System.out.println("Step 3: Removing every word starting with \"inter\"");
+        for (String word : words) {
+            if (word.startsWith("inter")) {
+                tree.remove(utf8(word));
+            }
+        }
+        tree.print();
+    }
+}
@@ -0,0 +1,548 @@
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Thread-safe version of {@link BTree} that latches per node instead of behind
+ * one global lock.
+ *
+ * Writers use latch crabbing with exclusive latches. Because insert splits full
+ * children and delete tops up minimal children on the way down, a child is
+ * always safe once it has been fixed, so a writer only ever holds its current
+ * node, the child and, while borrowing or merging, that child's siblings.
+ * Latches are always taken top-down.
+ *
+ * That single top-down pass only keeps valid shapes if every split and merge
+ * lands exactly on a legal node size, so nodes are sized by the minimum degree
+ * t = ceil(m/2): every node but the root holds between t-1 and 2t-1 keys. A full
+ * node of 2t-1 keys splits into two halves of t-1 around its median, and a merge
+ * of two minimal nodes plus their separator gives back exactly 2t-1. For even m
+ * this is the usual order-m bound; for odd m a node may hold m keys, one more
+ * than order m would allow (m = 3 behaves like a 2-3-4 tree).
+ *
+ * Readers take no latches at all. They read each node optimistically against
+ * its StampedLock version and validate before following a child; if a writer
+ * touched the node in between, the search restarts from the root.
+ */
+public class ConcurrentBTree {
+    private volatile BTreeNode root;
+    private final int m;
+    private final int maxKeys;
+    private final int minKeys;
+    private final int keyCapacity;
+
+    private class BTreeNode {
+        final int[] keys;
+        final BTreeNode[] children;
+        final boolean leaf;
+        int n; // number of keys currently in use
+        final StampedLock latch = new StampedLock();
+        long writeStamp; // only touched by the thread holding the write latch
+
+        BTreeNode(boolean leaf) {
+            this.leaf = leaf;
+            this.keys = new int[keyCapacity];
+            this.children = leaf ? null : new BTreeNode[keyCapacity + 1];
+        }
+
+        /**
+         * Finds the first index 'i' such that 'key <= keys[i]'. Safe to call on a
+         * node that is being modified; the caller validates the result afterwards.
+         */
+        int findKeyIndex(int key, int count) {
+            int lo = 0;
+            int hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid] < key) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        int findKeyIndex(int key) {
+            return findKeyIndex(key, n);
+        }
+
+        boolean isFull() {
+            return n >= maxKeys;
+        }
+
+        boolean isMinimal() {
+            return n <= minKeys;
+        }
+
+        void insertKey(int index, int key) {
+            System.arraycopy(keys, index, keys, index + 1, n - index);
+            keys[index] = key;
+            n++;
+        }
+
+        int removeKey(int index) {
+            int key = keys[index];
+            System.arraycopy(keys, index + 1, keys, index, n - index - 1);
+            n--;
+            return key;
+        }
+
+        void insertChild(int index, BTreeNode child, int childCount) {
+            System.arraycopy(children, index, children, index + 1, childCount - index);
+            children[index] = child;
+        }
+
+        BTreeNode removeChild(int index, int childCount) {
+            BTreeNode child = children[index];
+            System.arraycopy(children, index + 1, children, index, childCount - index - 1);
+            children[childCount - 1] = null;
+            return child;
+        }
+
+        void lock() {
+            writeStamp = latch.writeLock();
+        }
+
+        void unlock() {
+            latch.unlockWrite(writeStamp);
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(Arrays.copyOf(keys, n));
+        }
+    }
+
+    /**
+     * Constructor for the concurrent B-Tree.
+     * @param m The order of the tree; nodes are sized by t = ceil(m/2) (see the class comment)
+     */
+    public ConcurrentBTree(int m) {
+        if (m < 3) {
+            throw new IllegalArgumentException("B-Tree order must be at least 3.");
+        }
+        this.m = m;
+        int t = (m + 1) / 2; // minimum degree
+        this.minKeys = t - 1;
+        this.maxKeys = 2 * t - 1;
+        this.keyCapacity = maxKeys;
+        this.root = new BTreeNode(true);
+    }
+
+    /**
+     * Latches the current root exclusively. The root can be replaced while we
+     * wait for its latch, so re-check it once the latch is held.
+     */
+    private BTreeNode lockRoot() {
+        while (true) {
+            BTreeNode r = root;
+            r.lock();
+            if (r == root) {
+                return r;
+            }
+            r.unlock();
+        }
+    }
+
+    /**
+     * Searches for a key without taking any latch.
+     *
+     * @param key The integer key to search for.
+     * @return true if the key is found, false otherwise.
+     */
+    public boolean search(int key) {
+        restart:
+        while (true) {
+            BTreeNode node = root;
+            long stamp = node.latch.tryOptimisticRead();
+            if (stamp == 0 || node != root) {
+                Thread.onSpinWait();
+                continue;
+            }
+
+            while (true) {
+                int count = Math.min(node.n, keyCapacity);
+                int i = node.findKeyIndex(key, count);
+                boolean found = i < count && node.keys[i] == key;
+                BTreeNode child = (found || node.leaf) ? null : node.children[i];
+
+                if (!node.latch.validate(stamp)) {
+                    continue restart;
+                }
+                if (found) {
+                    return true;
+                }
+                if (node.leaf) {
+                    return false;
+                }
+
+                long childStamp = child.latch.tryOptimisticRead();
+                // the parent must still be unchanged after we picked up the child's version
+                if (childStamp == 0 || !node.latch.validate(stamp)) {
+                    continue restart;
+                }
+                node = child;
+                stamp = childStamp;
+            }
+        }
+    }
+
+    /**
+     * Inserts a new key into the B-Tree.
+     *
+     * @param key The integer key to insert.
+     */
+    public void insert(int key) {
+        BTreeNode node = lockRoot();
+        if (node.isFull()) {
+            BTreeNode newRoot = new BTreeNode(false);
+            newRoot.lock();
+            newRoot.children[0] = node;
+            BTreeNode sibling = splitChild(newRoot, 0);
+            root = newRoot;
+            node.unlock();
+            sibling.unlock();
+            node = newRoot;
+        }
+
+        while (!node.leaf) {
+            int i = node.findKeyIndex(key);
+            BTreeNode child = node.children[i];
+            child.lock();
+
+            if (child.isFull()) {
+                BTreeNode sibling = splitChild(node, i);
+                if (key > node.keys[i]) {
+                    child.unlock();
+                    child = sibling;
+                } else {
+                    sibling.unlock();
+                }
+            }
+            // the child can absorb a key without splitting, so the parent is no longer needed
+            node.unlock();
+            node = child;
+        }
+
+        node.insertKey(node.findKeyIndex(key), key);
+        node.unlock();
+    }
+
+    /**
+     * Splits the full, latched child at `childIndex` of the latched `parent`
+     * around its median, leaving minKeys keys on each side. The new sibling is
+     * latched before it becomes reachable and is returned still latched.
+     */
+    private BTreeNode splitChild(BTreeNode parent, int childIndex) {
+        BTreeNode fullChild = parent.children[childIndex];
+        BTreeNode newSibling = new BTreeNode(fullChild.leaf);
+        newSibling.lock();
+
+        int middleKey = fullChild.keys[minKeys];
+        int moved = fullChild.n - minKeys - 1;
+
+        System.arraycopy(fullChild.keys, minKeys + 1, newSibling.keys, 0, moved);
+        newSibling.n = moved;
+
+        if (!fullChild.leaf) {
+            System.arraycopy(fullChild.children, minKeys + 1, newSibling.children, 0, moved + 1);
+            Arrays.fill(fullChild.children, minKeys + 1, fullChild.n + 1, null);
+        }
+        fullChild.n = minKeys;
+
+        parent.insertChild(childIndex + 1, newSibling, parent.n + 1);
+        parent.insertKey(childIndex, middleKey);
+        return newSibling;
+    }
+
+    /**
+     * Deletes a key from the B-Tree.
+     *
+     * @param key The integer key to delete.
+     */
+    public void delete(int key) {
+        BTreeNode node = lockRoot();
+
+        while (true) {
+            int i = node.findKeyIndex(key);
+            boolean found = i < node.n && node.keys[i] == key;
+
+            if (node.leaf) {
+                if (found) {
+                    node.removeKey(i);
+                }
+                node.unlock();
+                return;
+            }
+
+            if (found) {
+                BTreeNode leftChild = node.children[i];
+                BTreeNode rightChild = node.children[i + 1];
+                leftChild.lock();
+                rightChild.lock();
+
+                if (leftChild.n > minKeys) {
+                    rightChild.unlock();
+                    // `node` stays latched until its key has been replaced
+                    node.keys[i] = removeMax(leftChild);
+                    node.unlock();
+                    return;
+                }
+                if (rightChild.n > minKeys) {
+                    leftChild.unlock();
+                    node.keys[i] = removeMin(rightChild);
+                    node.unlock();
+                    return;
+                }
+                merge(node, i);
+                rightChild.unlock();
+                releaseParent(node, leftChild);
+                node = leftChild;
+            } else {
+                BTreeNode child = descendInto(node, i);
+                releaseParent(node, child);
+                node = child;
+            }
+        }
+    }
+
+    /**
+     * Unlatches `parent` once the latched `child` has been made safe, collapsing
+     * the root first if a merge just emptied it.
+     */
+    private void releaseParent(BTreeNode parent, BTreeNode child) {
+        if (parent == root && parent.n == 0) {
+            root = child;
+        }
+        parent.unlock();
+    }
+
+    /**
+     * Removes and returns the largest key under the latched, safe `node`.
+     */
+    private int removeMax(BTreeNode node) {
+        while (!node.leaf) {
+            BTreeNode child = descendInto(node, node.n);
+            node.unlock();
+            node = child;
+        }
+        int key = node.keys[--node.n];
+        node.unlock();
+        return key;
+    }
+
+    /**
+     * Removes and returns the smallest key under the latched, safe `node`.
+     */
+    private int removeMin(BTreeNode node) {
+        while (!node.leaf) {
+            BTreeNode child = descendInto(node, 0);
+            node.unlock();
+            node = child;
+        }
+        int key = node.removeKey(0);
+        node.unlock();
+        return key;
+    }
+
+    /**
+     * Latches the child at `childIndex` of the latched `parent` and makes sure it
+     * has more than minKeys keys, so a removal further down can never leave it
+     * short. It borrows a key from a sibling that can spare one; otherwise it
+     * merges with a minimal sibling, which yields exactly maxKeys keys. Returns
+     * the latched node that now covers the child's key range; every other latch
+     * taken here is released.
+     */
+    private BTreeNode descendInto(BTreeNode parent, int childIndex) {
+        BTreeNode child = parent.children[childIndex];
+        child.lock();
+        if (!child.isMinimal()) {
+            return child;
+        }
+
+        BTreeNode leftSibling = (childIndex > 0) ? parent.children[childIndex - 1] : null;
+        BTreeNode rightSibling = (childIndex < parent.n) ? parent.children[childIndex + 1] : null;
+
+        if (leftSibling != null) {
+            leftSibling.lock();
+            if (leftSibling.n > minKeys) {
+                shiftKeyFromLeft(parent, childIndex);
+                leftSibling.unlock();
+                return child;
+            }
+        }
+        if (rightSibling != null) {
+            rightSibling.lock();
+            if (rightSibling.n > minKeys) {
+                shiftKeyFromRight(parent, childIndex);
+                rightSibling.unlock();
+                if (leftSibling != null) {
+                    leftSibling.unlock();
+                }
+                return child;
+            }
+        }
+
+        if (leftSibling != null) {
+            merge(parent, childIndex - 1);
+            child.unlock();
+            if (rightSibling != null) {
+                rightSibling.unlock();
+            }
+            return leftSibling;
+        }
+        merge(parent, childIndex);
+        rightSibling.unlock();
+        return child;
+    }
+
+    private void shiftKeyFromLeft(BTreeNode parent, int childIndex) {
+        BTreeNode child = parent.children[childIndex];
+        BTreeNode leftSibling = parent.children[childIndex - 1];
+
+        if (!leftSibling.leaf) {
+            child.insertChild(0, leftSibling.children[leftSibling.n], child.n + 1);
+            leftSibling.children[leftSibling.n] = null;
+        }
+
+        child.insertKey(0, parent.keys[childIndex - 1]);
+        parent.keys[childIndex - 1] = leftSibling.keys[--leftSibling.n];
+    }
+
+    private void shiftKeyFromRight(BTreeNode parent, int childIndex) {
+        BTreeNode child = parent.children[childIndex];
+        BTreeNode rightSibling = parent.children[childIndex + 1];
+
+        if (!rightSibling.leaf) {
+            child.children[child.n + 1] = rightSibling.removeChild(0, rightSibling.n + 1);
+        }
+
+        child.keys[child.n++] = parent.keys[childIndex];
+        parent.keys[childIndex] = rightSibling.removeKey(0);
+    }
+
+    private void merge(BTreeNode parent, int leftChildIndex) {
+        BTreeNode leftChild = parent.children[leftChildIndex];
+        BTreeNode rightChild = parent.children[leftChildIndex + 1];
+
+        leftChild.keys[leftChild.n] = parent.keys[leftChildIndex];
+        System.arraycopy(rightChild.keys, 0, leftChild.keys, leftChild.n + 1, rightChild.n);
+        if (!leftChild.leaf) {
+            System.arraycopy(rightChild.children, 0, leftChild.children, leftChild.n + 1, rightChild.n + 1);
+        }
+        leftChild.n += rightChild.n + 1;
+
+        parent.removeChild(leftChildIndex + 1, parent.n + 1);
+        parent.removeKey(leftChildIndex);
+    }
+
+    /**
+     * Walks the whole tree and throws IllegalStateException unless every node
+     * but the root holds between minKeys and maxKeys keys, keys are in order and
+     * all leaves sit at the same depth. Not
+     * safe to call while other threads are writing.
+     */
+    void checkShape() {
+        checkShape(root, true, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Checks the subtree under `node`, whose keys must lie strictly between
+     * `low` and `high`, and returns its height.
+     */
+    private int checkShape(BTreeNode node, boolean isRoot, long low, long high) {
+        if (node.n > maxKeys || (!isRoot && node.n < minKeys)) {
+            throw new IllegalStateException("Node " + node + " has " + node.n + " keys, expected "
+                    + (isRoot ? 0 : minKeys) + " to " + maxKeys);
+        }
+        for (int i = 0; i < node.n; i++) {
+            if (node.keys[i] <= (i == 0 ? low : node.keys[i - 1]) || node.keys[i] >= high) {
+                throw new IllegalStateException("Node " + node + " has keys out of order");
+            }
+        }
+        if (node.leaf) {
+            return 0;
+        }
+        int height = -1;
+        for (int i = 0; i <= node.n; i++) {
+            int childHeight = checkShape(node.children[i], false,
+                    i == 0 ? low : node.keys[i - 1], i == node.n ? high : node.keys[i]);
+            if (height >= 0 && childHeight != height) {
+                throw new IllegalStateException("Leaves under " + node + " are at different depths");
+            }
+            height = childHeight;
+        }
+        return height + 1;
+    }
+
+    /**
+     * Prints the tree. Not safe to call while other threads are writing.
+     */
+    public void print() {
+        if (root.n == 0) {
+            System.out.println("Tree (m=" + m + ") is empty.");
+        } else {
+            System.out.println("Concurrent B-Tree (m=" + m + "):");
+            printRecursive(root, "");
+        }
+    }
+
+    private void printRecursive(BTreeNode node, String indent) {
+        System.out.println(indent + node);
+
+        if (!node.leaf) {
+            String childIndent = indent + "  ";
+            for (int i = 0; i <= node.n; i++) {
+                printRecursive(node.children[i], childIndent);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("==============================================");
+        System.out.println("=   CONCURRENT: m = 4, 4 writer threads      =");
+        System.out.println("==============================================");
+
+        ConcurrentBTree tree = new ConcurrentBTree(4);
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            final int offset = t + 1;
+            writers[t] = new Thread(() -> {
+                for (int i = offset; i <= 20; i += 4) {
+                    tree.insert(i);
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        System.out.println("Step 1: Tree structure after concurrent insertions:");
+        tree.print();
+        System.out.println("----------------------------------------------");
+
+        for (int i = 2; i <= 20; i += 2) {
+            tree.delete(i);
+        }
+        System.out.println("Step 2: Tree structure after deleting even numbers:");
+        tree.print();
+
+        System.out.println("\n==============================================");
+        System.out.println("=   CONCURRENT: m = 3 (odd order)            =");
+        System.out.println("==============================================");
+
+        ConcurrentBTree oddTree = new ConcurrentBTree(3);
+        for (int i = 1; i <= 10; i++) {
+            oddTree.insert(i);
+        }
+        System.out.println("Step 1: Tree structure after inserting 1 to 10:");
+        oddTree.print();
+        System.out.println("----------------------------------------------");
+
+        oddTree.delete(4);
+        oddTree.delete(7);
+        System.out.println("Step 2: Tree structure after deleting 4 and 7:");
+        oddTree.print();
+    }
+}
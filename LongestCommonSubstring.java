@@ -1,13 +1,327 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Random;
+
 public class LongestCommonSubstring {
+    private static final int CHUNK_CHARS = 8192; // chars read from a Reader at a time
+    // AUTO uses the DP while the indexed input is at most this long: a DP step costs about
+    // one char comparison per inner char, an automaton step a few hash probes plus the build
+    private static final int DP_MAX_INNER = 24;
 
     /**
-     * Finds the longest common substring between two strings using dynamic programming.
+     * Which algorithm findLongestCommonSubstring runs. Both return the same
+     * substring.
+     */
+    public enum Engine {
+        /** The rolling-row DP: O(m*n) time, O(min(m, n)) memory, no setup. */
+        DYNAMIC_PROGRAMMING,
+        /** A suffix automaton of the shorter input: O(m + n) time, up to about 160 bytes per char of it. */
+        SUFFIX_AUTOMATON,
+        /** DP for tiny inputs, where it beats building an automaton, the automaton otherwise. */
+        AUTO
+    }
+
+    /**
+     * Finds the longest common substring between two strings.
+     *
+     * The engine is picked by input size, see {@link Engine#AUTO}. If there
+     * are several longest common substrings, the one that ends first in `x`
+     * is returned.
      *
      * @param x The first string.
      * @param y The second string.
      * @return A string containing the longest common substring.
      */
-    public String findLongestCommonSubstring(String x, String y) {
+    public String findLongestCommonSubstring(CharSequence x, CharSequence y) {
+        return findLongestCommonSubstring(x, y, Engine.AUTO);
+    }
+
+    /**
+     * Same as {@link #findLongestCommonSubstring(CharSequence, CharSequence)},
+     * but with `printTable` set the full (m+1) x (n+1) table is built and printed,
+     * which is meant for debugging small inputs only.
+     */
+    public String findLongestCommonSubstring(CharSequence x, CharSequence y, boolean printTable) {
+        if (printTable) {
+            return fullTable(x, y);
+        }
+        return findLongestCommonSubstring(x, y, Engine.AUTO);
+    }
+
+    /**
+     * Finds the longest common substring with the given engine. Either engine
+     * indexes the shorter input and streams the longer one through it.
+     */
+    public String findLongestCommonSubstring(CharSequence x, CharSequence y, Engine engine) {
+        if (x.length() <= y.length()) {
+            Scan scan = scan(x, engine, true); // ties go to the earlier end in x
+            for (int j = 0; j < y.length(); j++) {
+                scan.feed(y.charAt(j));
+            }
+            return scan.bestInInner();
+        }
+        Scan scan = scan(y, engine, false); // the outer side is x, so the first maximum ends first in x
+        for (int i = 0; i < x.length(); i++) {
+            scan.feed(x.charAt(i));
+        }
+        return (scan.bestLength == 0) ? ""
+                : x.subSequence((int) scan.bestEndInOuter - scan.bestLength, (int) scan.bestEndInOuter).toString();
+    }
+
+    /**
+     * Streaming mode: finds the longest common substring of `x` and the text
+     * read from `y`, which is consumed in chunks and never held in memory. Only
+     * `x` and the engine's index of it are kept, so memory is O(|x|) however
+     * long `y` is. If there are several longest common substrings, the one
+     * found first in `y` is returned. `y` is not closed.
+     */
+    public String findLongestCommonSubstring(CharSequence x, Reader y) throws IOException {
+        return findLongestCommonSubstring(x, y, Engine.AUTO);
+    }
+
+    public String findLongestCommonSubstring(CharSequence x, Reader y, Engine engine) throws IOException {
+        Scan scan = scan(x, engine, false);
+        char[] chunk = new char[CHUNK_CHARS];
+        for (int read; (read = y.read(chunk)) != -1; ) {
+            for (int i = 0; i < read; i++) {
+                scan.feed(chunk[i]);
+            }
+        }
+        return scan.bestInInner();
+    }
+
+    private static Scan scan(CharSequence inner, Engine engine, boolean preferEarlierInner) {
+        if (engine == Engine.DYNAMIC_PROGRAMMING || (engine == Engine.AUTO && inner.length() <= DP_MAX_INNER)) {
+            return new RollingRow(inner, preferEarlierInner);
+        }
+        return new AutomatonScan(inner, preferEarlierInner);
+    }
+
+    /**
+     * Matches an outer text, fed one character at a time, against an inner
+     * text, and keeps the longest common substring seen so far.
+     */
+    private abstract static class Scan {
+        final CharSequence inner;
+        final boolean preferEarlierInner; // break length ties by the end in inner instead of outer
+        long fed;
+        int bestLength;
+        int bestEndInInner; // exclusive end of the best match in inner
+        long bestEndInOuter; // and in the outer text
+
+        Scan(CharSequence inner, boolean preferEarlierInner) {
+            this.inner = inner;
+            this.preferEarlierInner = preferEarlierInner;
+        }
+
+        abstract void feed(char c);
+
+        /**
+         * Records a match of `length` chars ending at `endInInner` in inner and
+         * at the current position in the outer text.
+         */
+        final void offer(int length, int endInInner) {
+            if (length > bestLength || (length == bestLength && preferEarlierInner && endInInner < bestEndInInner)) {
+                bestLength = length;
+                bestEndInInner = endInInner;
+                bestEndInOuter = fed;
+            }
+        }
+
+        final String bestInInner() {
+            return (bestLength == 0) ? "" : inner.subSequence(bestEndInInner - bestLength, bestEndInInner).toString();
+        }
+    }
+
+    /**
+     * One row of the DP table over `inner`, advanced one character of the outer
+     * text at a time: after feeding outer[0, k), row[j] is the length of the
+     * longest common suffix of inner[0, j) and outer[0, k).
+     */
+    private static final class RollingRow extends Scan {
+        private final int[] row;
+
+        RollingRow(CharSequence inner, boolean preferEarlierInner) {
+            super(inner, preferEarlierInner);
+            this.row = new int[inner.length() + 1];
+        }
+
+        @Override
+        void feed(char c) {
+            fed++;
+            // right to left, so row[j - 1] still holds the previous row's value
+            for (int j = row.length - 1; j >= 1; j--) {
+                if (inner.charAt(j - 1) == c) {
+                    row[j] = row[j - 1] + 1;
+                    offer(row[j], j);
+                } else {
+                    row[j] = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Suffix automaton of `inner`: the smallest automaton accepting exactly its
+     * substrings, with at most 2n states and 3n transitions. Every state stands
+     * for a set of substrings that end at the same positions. `length` is the
+     * longest of them, `link` the state of the longest suffix that ends at more
+     * positions, and `firstEnd` where the first occurrence ends.
+     *
+     * The outer text is matched like Aho-Corasick: follow the transition for
+     * each character, or fall back along the links until one exists. The
+     * current state and match length then describe the longest suffix of the
+     * outer text read so far that occurs in inner. Each character costs
+     * amortized O(1), so the whole scan is O(m + n).
+     *
+     * Everything lives in primitive arrays. A transition is an edge on its
+     * state's linked list, which is used when a state is cloned, and an entry
+     * in an open-addressing hash table keyed by (state, char), which is used
+     * for lookups.
+     */
+    private static final class AutomatonScan extends Scan {
+        private static final int NONE = -1;
+
+        private final int[] length, link, firstEnd, edgeHead; // per state
+        private final int[] edgeNext, edgeTarget; // per edge
+        private final char[] edgeChar;
+        private long[] slotKey; // (state << 16 | char) of the edge in the slot
+        private int[] slotEdge; // edge index, or NONE for an empty slot
+        private int slotShift;
+        private int states, edges, last;
+        private int state, matched; // where the outer text currently stands
+
+        AutomatonScan(CharSequence inner, boolean preferEarlierInner) {
+            super(inner, preferEarlierInner);
+            int n = inner.length();
+            int maxStates = 2 * n + 2;
+            int maxEdges = 3 * n + 4;
+            length = new int[maxStates];
+            link = new int[maxStates];
+            firstEnd = new int[maxStates];
+            edgeHead = new int[maxStates];
+            edgeNext = new int[maxEdges];
+            edgeTarget = new int[maxEdges];
+            edgeChar = new char[maxEdges];
+            resize(16);
+
+            last = newState(0, NONE, 0); // the root: the empty string
+            for (int i = 0; i < n; i++) {
+                extend(inner.charAt(i), i + 1);
+            }
+        }
+
+        private int newState(int len, int suffixLink, int end) {
+            int s = states++;
+            length[s] = len;
+            link[s] = suffixLink;
+            firstEnd[s] = end;
+            edgeHead[s] = NONE;
+            return s;
+        }
+
+        private void resize(int slots) {
+            long[] oldKeys = slotKey;
+            int[] oldEdges = slotEdge;
+            slotKey = new long[slots];
+            slotEdge = new int[slots];
+            Arrays.fill(slotEdge, NONE);
+            slotShift = 64 - Integer.numberOfTrailingZeros(slots);
+            if (oldEdges != null) {
+                for (int i = 0; i < oldEdges.length; i++) {
+                    if (oldEdges[i] != NONE) {
+                        int slot = slot(oldKeys[i]);
+                        slotKey[slot] = oldKeys[i];
+                        slotEdge[slot] = oldEdges[i];
+                    }
+                }
+            }
+        }
+
+        private int slot(long key) {
+            int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> slotShift); // Fibonacci hashing
+            while (slotEdge[slot] != NONE && slotKey[slot] != key) {
+                slot = (slot + 1) & (slotEdge.length - 1);
+            }
+            return slot;
+        }
+
+        private int edge(int from, char c) {
+            return slotEdge[slot(((long) from << 16) | c)];
+        }
+
+        private void addEdge(int from, char c, int target) {
+            if (2 * (edges + 1) > slotEdge.length) { // keep the table at most half full
+                resize(slotEdge.length * 2);
+            }
+            int e = edges++;
+            edgeChar[e] = c;
+            edgeTarget[e] = target;
+            edgeNext[e] = edgeHead[from];
+            edgeHead[from] = e;
+            long key = ((long) from << 16) | c;
+            int slot = slot(key);
+            slotKey[slot] = key;
+            slotEdge[slot] = e;
+        }
+
+        /**
+         * Appends `c`, the character ending at `end`, to the automaton.
+         */
+        private void extend(char c, int end) {
+            int cur = newState(length[last] + 1, NONE, end);
+            int p = last;
+            while (p != NONE && edge(p, c) == NONE) {
+                addEdge(p, c, cur);
+                p = link[p];
+            }
+            if (p == NONE) {
+                link[cur] = 0;
+            } else {
+                int q = edgeTarget[edge(p, c)];
+                if (length[p] + 1 == length[q]) {
+                    link[cur] = q;
+                } else {
+                    // q also stands for longer strings that do not end here: split off the short ones
+                    int clone = newState(length[p] + 1, link[q], firstEnd[q]);
+                    for (int e = edgeHead[q]; e != NONE; e = edgeNext[e]) {
+                        addEdge(clone, edgeChar[e], edgeTarget[e]);
+                    }
+                    for (int e; p != NONE && (e = edge(p, c)) != NONE && edgeTarget[e] == q; p = link[p]) {
+                        edgeTarget[e] = clone;
+                    }
+                    link[q] = clone;
+                    link[cur] = clone;
+                }
+            }
+            last = cur;
+        }
+
+        @Override
+        void feed(char c) {
+            fed++;
+            int e;
+            while ((e = edge(state, c)) == NONE && state != 0) {
+                state = link[state];
+                matched = length[state];
+            }
+            if (e == NONE) { // not even at the root: c does not occur in inner
+                matched = 0;
+                return;
+            }
+            state = edgeTarget[e];
+            matched++;
+            // every string of a state first ends at the same place, so this is where the match first occurs
+            offer(matched, firstEnd[state]);
+        }
+    }
+
+    /**
+     * The original full-table algorithm, which also prints the table.
+     */
+    private String fullTable(CharSequence x, CharSequence y) {
         int m = x.length();
         int n = y.length();
         int[][] dp = new int[m + 1][n + 1];
@@ -34,17 +348,17 @@ public class LongestCommonSubstring {
         if (maxLength == 0) {
             return "";
         } else {
-            return x.substring(endPosInX - maxLength, endPosInX);
+            return x.subSequence(endPosInX - maxLength, endPosInX).toString();
         }
     }
 
     /**
      * Helper function to print the DP table.
      */
-    private void printTable(int[][] table, String x, String y) {
+    private void printTable(int[][] table, CharSequence x, CharSequence y) {
         System.out.print("       ");
-        for (char c : y.toCharArray()) {
-            System.out.printf("%-3c", c);
+        for (int j = 0; j < y.length(); j++) {
+            System.out.printf("%-3c", y.charAt(j));
         }
         System.out.println();
         System.out.print("    ");
@@ -61,7 +375,7 @@ public class LongestCommonSubstring {
         }
     }
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         LongestCommonSubstring lcs = new LongestCommonSubstring();
 
         String x1 = "ABCBDAB";
@@ -69,7 +383,7 @@ public class LongestCommonSubstring {
         System.out.println("--> Test Case 1 <--");
         System.out.println("Input X: " + x1);
         System.out.println("Input Y: " + y1);
-        String result1 = lcs.findLongestCommonSubstring(x1, y1);
+        String result1 = lcs.findLongestCommonSubstring(x1, y1, true);
         System.out.println("\nOutput (Longest Common Substring): " + result1);
         System.out.println("---------------------\n");
 
@@ -78,7 +392,7 @@ public class LongestCommonSubstring {
         System.out.println("--> Test Case 2 <--");
         System.out.println("Input X: " + x2);
         System.out.println("Input Y: " + y2);
-        String result2 = lcs.findLongestCommonSubstring(x2, y2);
+        String result2 = lcs.findLongestCommonSubstring(x2, y2, true);
         System.out.println("\nOutput (Longest Common Substring): " + result2);
         System.out.println("---------------------\n");
 
@@ -87,7 +401,7 @@ public class LongestCommonSubstring {
         System.out.println("--> Test Case 3 <--");
         System.out.println("Input X: " + x3);
         System.out.println("Input Y: " + y3);
-        String result3 = lcs.findLongestCommonSubstring(x3, y3);
+        String result3 = lcs.findLongestCommonSubstring(x3, y3, true);
         System.out.println("\nOutput (Longest Common Substring): " + result3);
         System.out.println("---------------------\n");
 
@@ -96,8 +410,38 @@ public class LongestCommonSubstring {
         System.out.println("--> Test Case 4 <--");
         System.out.println("Input X: " + x4);
         System.out.println("Input Y: " + y4);
-        String result4 = lcs.findLongestCommonSubstring(x4, y4);
+        String result4 = lcs.findLongestCommonSubstring(x4, y4, true);
         System.out.println("\nOutput (Longest Common Substring): " + result4);
         System.out.println("---------------------\n");
+
+        System.out.println("--> Test Case 5: Y streamed from a Reader, both engines <--");
+        StringBuilder x5 = new StringBuilder();
+        StringBuilder y5 = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            x5.append((char) ('a' + (i * 7) % 26));
+            y5.append((char) ('a' + (i * 11) % 26));
+        }
+        x5.insert(12_345, "needle-in-a-haystack");
+        y5.insert(4_321, "needle-in-a-haystack");
+        for (Engine engine : new Engine[] {Engine.DYNAMIC_PROGRAMMING, Engine.SUFFIX_AUTOMATON}) {
+            long start = System.nanoTime();
+            String result5 = lcs.findLongestCommonSubstring(x5, new StringReader(y5.toString()), engine);
+            System.out.printf("%-19s: %s (%d x %d chars in %.3f s)%n", engine, result5, x5.length(), y5.length(),
+                    (System.nanoTime() - start) / 1e9);
+        }
+        System.out.println("---------------------\n");
+
+        System.out.println("--> Test Case 6: two 2,000,000-char documents, automaton engine <--");
+        StringBuilder x6 = new StringBuilder();
+        StringBuilder y6 = new StringBuilder();
+        Random random = new Random(6);
+        for (int i = 0; i < 2_000_000; i++) {
+            x6.append((char) ('a' + random.nextInt(4)));
+            y6.append((char) ('a' + random.nextInt(4)));
+        }
+        long start = System.nanoTime();
+        String result6 = lcs.findLongestCommonSubstring(x6, y6);
+        System.out.printf("Output: %d chars long (%.2f s; the DP would need 4e12 steps)%n", result6.length(),
+                (System.nanoTime() - start) / 1e9);
     }
-}
\ No newline at end of file
+}
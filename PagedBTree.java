@@ -0,0 +1,895 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * A disk-resident version of {@link BTree}. Every node is a fixed-size page in a
+ * file that is memory-mapped region by region, and a bounded LRU buffer pool of
+ * decoded pages sits in front of the mapping. The search/insert/delete algorithms
+ * are the same ones BTree uses (insert splits a page once it overflows, delete
+ * repairs a short page on the way back up); they simply address children by
+ * page id. A page only overflows in the middle of an operation, so the file
+ * stores at most maxKeys keys per page.
+ *
+ * Optionally every insert/delete is first recorded in a {@link WriteAheadLog}
+ * next to the page file. In that mode dirty pages never reach the file between
+ * checkpoints (no-steal), so the file always holds the last checkpoint exactly
+ * and a crash in the middle of a split or merge cannot leave it half-updated.
+ * A checkpoint logs images of the dirty pages as one atomic batch, writes them in
+ * place and then truncates the log; on open, a logged checkpoint that did not
+ * finish is re-applied and the operations after it are replayed.
+ */
+public class PagedBTree implements Closeable {
+    private static final int MAGIC = 0x42545245; // "BTRE"
+    private static final int HEADER_PAGE = 0;
+    private static final int NO_PAGE = -1;
+    private static final long REGION_BYTES = 1L << 24; // map the file 16 MiB at a time
+    private static final long MAX_LOG_BYTES = 1L << 26; // checkpoint once the log passes 64 MiB
+
+    // log record types
+    private static final byte LOG_INSERT = 1;
+    private static final byte LOG_DELETE = 2;
+    private static final byte LOG_CHECKPOINT = 3;
+    private static final byte LOG_PAGE = 4;
+    private static final byte LOG_HEADER = 5;
+
+    private final int m;
+    private final int maxKeys;
+    private final int minKeys;
+    private final int keyCapacity;
+
+    private final FileChannel channel;
+    private final int pageSize;
+    private final int pagesPerRegion;
+    private final List<MappedByteBuffer> regions = new ArrayList<>();
+    private final BufferPool pool;
+    private final WriteAheadLog log; // null when running without a log
+    private boolean replaying;
+
+    private int rootId;
+    private int pageCount;
+    private int freeHead;
+
+    /**
+     * A decoded node page. Children are stored as page ids instead of references.
+     */
+    private class Page {
+        final int id;
+        boolean leaf;
+        int n; // number of keys currently in use
+        final int[] keys = new int[keyCapacity];
+        final int[] children = new int[keyCapacity + 1];
+        boolean dirty;
+        boolean free; // on the free list; only nextFree is stored
+        int nextFree;
+
+        Page(int id) {
+            this.id = id;
+        }
+
+        /**
+         * Finds the first index 'i' such that 'key <= keys[i]'.
+         */
+        int findKeyIndex(int key) {
+            int lo = 0;
+            int hi = n;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid] < key) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        boolean isOverfull() {
+            return n > maxKeys;
+        }
+
+        void insertKey(int index, int key) {
+            System.arraycopy(keys, index, keys, index + 1, n - index);
+            keys[index] = key;
+            n++;
+        }
+
+        int removeKey(int index) {
+            int key = keys[index];
+            System.arraycopy(keys, index + 1, keys, index, n - index - 1);
+            n--;
+            return key;
+        }
+
+        void insertChild(int index, int child, int childCount) {
+            System.arraycopy(children, index, children, index + 1, childCount - index);
+            children[index] = child;
+        }
+
+        int removeChild(int index, int childCount) {
+            int child = children[index];
+            System.arraycopy(children, index + 1, children, index, childCount - index - 1);
+            return child;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(Arrays.copyOf(keys, n));
+        }
+    }
+
+    /**
+     * LRU cache of decoded pages. Eviction writes dirty pages back to the mapping,
+     * except when a log is kept: then dirty pages stay until the next checkpoint.
+     * Pages are only evicted between operations (see {@link #endOperation()}), so
+     * a page that an operation is still holding can never be dropped underneath
+     * it; a single operation touches at most a few pages per level, which bounds
+     * the temporary overshoot by the height of the tree.
+     */
+    private class BufferPool {
+        private final int capacity;
+        private final LinkedHashMap<Integer, Page> frames;
+
+        BufferPool(int capacity) {
+            this.capacity = capacity;
+            this.frames = new LinkedHashMap<>(16, 0.75f, true);
+        }
+
+        Page get(int id) {
+            Page page = frames.get(id);
+            if (page == null) {
+                page = readPage(id);
+                frames.put(id, page);
+            }
+            return page;
+        }
+
+        Page cached(int id) {
+            return frames.get(id);
+        }
+
+        void add(Page page) {
+            frames.put(page.id, page);
+        }
+
+        boolean overCapacity() {
+            return frames.size() > capacity;
+        }
+
+        void evict() {
+            Iterator<Page> it = frames.values().iterator();
+            while (frames.size() > capacity && it.hasNext()) {
+                Page victim = it.next();
+                if (victim.dirty) {
+                    if (log != null) {
+                        continue;
+                    }
+                    writePage(victim);
+                }
+                it.remove();
+            }
+        }
+
+        List<Page> dirtyPages() {
+            List<Page> dirty = new ArrayList<>();
+            for (Page page : frames.values()) {
+                if (page.dirty) {
+                    dirty.add(page);
+                }
+            }
+            return dirty;
+        }
+    }
+
+    /**
+     * Opens the tree stored in `file`, creating it if it does not exist yet. No
+     * log is kept, so changes since the last {@link #flush()} are lost on a crash.
+     *
+     * @param file The backing file.
+     * @param m The order of the tree; must match the order of an existing file.
+     * @param poolPages How many decoded pages the buffer pool keeps in memory.
+     */
+    public PagedBTree(Path file, int m, int poolPages) throws IOException {
+        this(file, m, poolPages, 0);
+    }
+
+    /**
+     * Opens the tree stored in `file`, creating it if it does not exist yet. With a
+     * positive `groupCommit`, operations are logged to `file` + ".wal" and the log
+     * is forced once per `groupCommit` operations (or on {@link #sync()}); any log
+     * left behind by a crash is recovered before the constructor returns.
+     *
+     * @param file The backing file.
+     * @param m The order of the tree; must match the order of an existing file.
+     * @param poolPages How many decoded pages the buffer pool keeps in memory.
+     * @param groupCommit Operations per log force, or 0 to run without a log.
+     */
+    public PagedBTree(Path file, int m, int poolPages, int groupCommit) throws IOException {
+        if (m < 3) {
+            throw new IllegalArgumentException("B-Tree order must be at least 3.");
+        }
+        if (poolPages < 1) {
+            throw new IllegalArgumentException("Buffer pool must hold at least one page.");
+        }
+        if (groupCommit < 0) {
+            throw new IllegalArgumentException("Group commit size cannot be negative.");
+        }
+        this.m = m;
+        this.maxKeys = m - 1;
+        this.minKeys = (int) Math.ceil(m / 2.0) - 1;
+        // insert adds the key first and splits afterwards, so a page briefly holds maxKeys + 1
+        this.keyCapacity = maxKeys + 1;
+        // page layout: leaf flag, key count, maxKeys keys, maxKeys + 1 child page ids
+        this.pageSize = Integer.BYTES * (2 + maxKeys + maxKeys + 1);
+        this.pagesPerRegion = (int) Math.max(1, REGION_BYTES / pageSize);
+        this.pool = new BufferPool(poolPages);
+
+        boolean exists = Files.exists(file) && Files.size(file) > 0;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if (exists) {
+            MappedByteBuffer header = region(HEADER_PAGE);
+            if (header.getInt(0) != MAGIC) {
+                channel.close();
+                throw new IOException(file + " is not a B-Tree page file.");
+            }
+            if (header.getInt(4) != m) {
+                channel.close();
+                throw new IOException(file + " was created with order " + header.getInt(4) + ", not " + m + ".");
+            }
+            // files from before the page size was recorded hold 0 here; their layout
+            // only matches the current one for even orders
+            int storedPageSize = header.getInt(20);
+            if (storedPageSize != pageSize && !(storedPageSize == 0 && m % 2 == 0)) {
+                channel.close();
+                throw new IOException(file + " uses " + storedPageSize + "-byte pages, not " + pageSize + ".");
+            }
+            this.rootId = header.getInt(8);
+            this.pageCount = header.getInt(12);
+            this.freeHead = header.getInt(16);
+        }
+
+        this.log = (groupCommit > 0) ? new WriteAheadLog(Paths.get(file + ".wal"), groupCommit) : null;
+
+        if (!exists) {
+            this.pageCount = 1; // page 0 is the header
+            this.freeHead = NO_PAGE;
+            Page r = allocatePage(true);
+            this.rootId = r.id;
+            flush();
+        } else if (log != null) {
+            recover();
+        }
+    }
+
+    /**
+     * Brings the page file up to date with the log: re-applies the last logged
+     * checkpoint if its in-place writes may not have finished, then replays the
+     * operations logged after it and checkpoints the result.
+     */
+    private void recover() throws IOException {
+        List<ByteBuffer> batches = log.readBatches();
+        if (batches.isEmpty()) {
+            return;
+        }
+
+        int first = 0;
+        for (int b = batches.size() - 1; b >= 0; b--) {
+            if (batches.get(b).get(0) == LOG_CHECKPOINT) {
+                applyCheckpoint(batches.get(b));
+                first = b + 1;
+                break;
+            }
+        }
+
+        // no checkpoints while replaying: truncating the log now would lose the rest of it
+        replaying = true;
+        for (int b = first; b < batches.size(); b++) {
+            ByteBuffer batch = batches.get(b);
+            while (batch.hasRemaining()) {
+                byte type = batch.get();
+                int key = batch.getInt();
+                if (type == LOG_INSERT) {
+                    insert(key);
+                } else if (type == LOG_DELETE) {
+                    delete(key);
+                } else {
+                    throw new IOException("Unexpected log record type " + type + ".");
+                }
+            }
+        }
+        replaying = false;
+        flush();
+    }
+
+    /**
+     * Copies the page images and header of a logged checkpoint into the file.
+     */
+    private void applyCheckpoint(ByteBuffer batch) throws IOException {
+        batch.get(); // LOG_CHECKPOINT marker
+        while (batch.hasRemaining()) {
+            byte type = batch.get();
+            if (type == LOG_PAGE) {
+                int id = batch.getInt();
+                region(id).put(offset(id), batch, batch.position(), pageSize);
+                batch.position(batch.position() + pageSize);
+            } else if (type == LOG_HEADER) {
+                rootId = batch.getInt();
+                pageCount = batch.getInt();
+                freeHead = batch.getInt();
+            } else {
+                throw new IOException("Unexpected checkpoint record type " + type + ".");
+            }
+        }
+        writeHeader();
+        for (MappedByteBuffer region : regions) {
+            region.force();
+        }
+    }
+
+    // --> page file helpers <--
+
+    private MappedByteBuffer region(int pageId) {
+        int index = pageId / pagesPerRegion;
+        while (regions.size() <= index) {
+            long start = (long) regions.size() * pagesPerRegion * pageSize;
+            try {
+                regions.add(channel.map(FileChannel.MapMode.READ_WRITE, start, (long) pagesPerRegion * pageSize));
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not map page region at offset " + start, e);
+            }
+        }
+        return regions.get(index);
+    }
+
+    private int offset(int pageId) {
+        return (pageId % pagesPerRegion) * pageSize;
+    }
+
+    private Page readPage(int id) {
+        MappedByteBuffer buf = region(id);
+        int pos = offset(id);
+        Page page = new Page(id);
+        page.leaf = buf.getInt(pos) != 0;
+        page.n = buf.getInt(pos + 4);
+        pos += 8;
+        for (int i = 0; i < maxKeys; i++, pos += 4) {
+            page.keys[i] = buf.getInt(pos);
+        }
+        for (int i = 0; i <= maxKeys; i++, pos += 4) {
+            page.children[i] = buf.getInt(pos);
+        }
+        return page;
+    }
+
+    private void writePage(Page page) {
+        encode(region(page.id), offset(page.id), page);
+        page.dirty = false;
+    }
+
+    /**
+     * Serializes `page` into `buf` at `pos`, either in the mapping or in a log batch.
+     */
+    private void encode(ByteBuffer buf, int pos, Page page) {
+        if (page.free) {
+            buf.putInt(pos, page.nextFree);
+            return;
+        }
+        buf.putInt(pos, page.leaf ? 1 : 0);
+        buf.putInt(pos + 4, page.n);
+        pos += 8;
+        for (int i = 0; i < maxKeys; i++, pos += 4) {
+            buf.putInt(pos, page.keys[i]);
+        }
+        for (int i = 0; i <= maxKeys; i++, pos += 4) {
+            buf.putInt(pos, page.children[i]);
+        }
+    }
+
+    private void writeHeader() {
+        MappedByteBuffer header = region(HEADER_PAGE);
+        header.putInt(0, MAGIC);
+        header.putInt(4, m);
+        header.putInt(8, rootId);
+        header.putInt(12, pageCount);
+        header.putInt(16, freeHead);
+        header.putInt(20, pageSize);
+    }
+
+    /**
+     * Hands out a fresh page, reusing one from the free list when possible.
+     */
+    private Page allocatePage(boolean leaf) {
+        int id;
+        if (freeHead != NO_PAGE) {
+            id = freeHead;
+            Page cached = pool.cached(id);
+            freeHead = (cached != null) ? cached.nextFree : region(id).getInt(offset(id));
+        } else {
+            id = pageCount++;
+        }
+        Page page = new Page(id);
+        page.leaf = leaf;
+        page.dirty = true;
+        pool.add(page);
+        return page;
+    }
+
+    /**
+     * Returns a page to the free list; its first word links to the next free page.
+     * The link is written like any other dirty page, so it obeys the same rules.
+     */
+    private void freePage(int id) {
+        Page page = new Page(id);
+        page.free = true;
+        page.nextFree = freeHead;
+        page.dirty = true;
+        pool.add(page);
+        freeHead = id;
+    }
+
+    private Page page(int id) {
+        return pool.get(id);
+    }
+
+    /**
+     * Checkpoints the tree: writes all dirty pages and the header back and forces
+     * them to disk. With a log, the page images are logged first as one batch so a
+     * crash halfway through the in-place writes can be repaired, and the log is
+     * truncated afterwards.
+     */
+    public void flush() {
+        try {
+            if (log != null) {
+                List<Page> dirty = pool.dirtyPages();
+                ByteBuffer batch = WriteAheadLog.newBatch(1 + dirty.size() * (1 + Integer.BYTES + pageSize) + 1 + 3 * Integer.BYTES);
+                batch.put(LOG_CHECKPOINT);
+                for (Page page : dirty) {
+                    batch.put(LOG_PAGE).putInt(page.id);
+                    encode(batch, batch.position(), page);
+                    batch.position(batch.position() + pageSize);
+                }
+                batch.put(LOG_HEADER).putInt(rootId).putInt(pageCount).putInt(freeHead);
+                log.append(batch);
+            }
+
+            for (Page page : pool.dirtyPages()) {
+                writePage(page);
+            }
+            writeHeader();
+            for (MappedByteBuffer region : regions) {
+                region.force();
+            }
+
+            if (log != null) {
+                log.truncate();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Checkpoint failed", e);
+        }
+    }
+
+    /**
+     * Forces every operation logged so far, without waiting for its group to fill.
+     */
+    public void sync() {
+        if (log != null) {
+            try {
+                log.commit();
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not force the log", e);
+            }
+        }
+    }
+
+    private void logOperation(byte type, int key) {
+        if (log != null && !replaying) {
+            try {
+                log.append(type, key);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not append to the log", e);
+            }
+        }
+    }
+
+    /**
+     * Called once no page of the finished operation is referenced any more. Shrinks
+     * the pool back to its capacity, checkpointing first when a log is kept and the
+     * pool is full of dirty pages or the log has grown past MAX_LOG_BYTES.
+     */
+    private void endOperation() {
+        pool.evict();
+        if (log != null && !replaying) {
+            try {
+                if (pool.overCapacity() || log.size() > MAX_LOG_BYTES) {
+                    flush();
+                    pool.evict();
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read the log size", e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        if (log != null) {
+            log.close();
+        }
+        channel.close();
+    }
+
+    // --> B-Tree operations <--
+
+    /**
+     * Searches for a key in the B-Tree.
+     *
+     * @param key The integer key to search for.
+     * @return true if the key is found, false otherwise.
+     */
+    public boolean search(int key) {
+        Page node = page(rootId);
+        while (true) {
+            int i = node.findKeyIndex(key);
+
+            if (i < node.n && node.keys[i] == key) {
+                endOperation();
+                return true;
+            }
+
+            if (node.leaf) {
+                endOperation();
+                return false;
+            }
+
+            node = page(node.children[i]);
+        }
+    }
+
+    /**
+     * Inserts a new key into the B-Tree.
+     *
+     * @param key The integer key to insert.
+     */
+    public void insert(int key) {
+        logOperation(LOG_INSERT, key);
+        Page r = page(rootId);
+        if (insert(r, key)) {
+            Page newRoot = allocatePage(false);
+            newRoot.children[0] = r.id;
+            splitChild(newRoot, 0);
+            this.rootId = newRoot.id;
+        }
+        endOperation();
+    }
+
+    /**
+     * Inserts a key below `node` and splits every child that overflows on the
+     * way back up, as BTree does.
+     * @return true if `node` itself now holds one key too many
+     */
+    private boolean insert(Page node, int key) {
+        int i = node.findKeyIndex(key);
+
+        if (node.leaf) {
+            node.insertKey(i, key);
+            node.dirty = true;
+        } else if (insert(page(node.children[i]), key)) {
+            splitChild(node, i);
+        }
+        return node.isOverfull();
+    }
+
+    /**
+     * Splits an overfull child of `parent` at its middle key, which is promoted;
+     * each half keeps at least minKeys keys.
+     */
+    private void splitChild(Page parent, int childIndex) {
+        Page fullChild = page(parent.children[childIndex]);
+        Page newSibling = allocatePage(fullChild.leaf);
+
+        int middle = fullChild.n / 2;
+        int middleKey = fullChild.keys[middle];
+        int moved = fullChild.n - middle - 1;
+
+        System.arraycopy(fullChild.keys, middle + 1, newSibling.keys, 0, moved);
+        newSibling.n = moved;
+
+        if (!fullChild.leaf) {
+            System.arraycopy(fullChild.children, middle + 1, newSibling.children, 0, moved + 1);
+        }
+        fullChild.n = middle;
+
+        parent.insertChild(childIndex + 1, newSibling.id, parent.n + 1);
+        parent.insertKey(childIndex, middleKey);
+
+        fullChild.dirty = true;
+        parent.dirty = true;
+    }
+
+    /**
+     * Deletes a key from the B-Tree.
+     *
+     * @param key The integer key to delete.
+     */
+    public void delete(int key) {
+        logOperation(LOG_DELETE, key);
+        Page r = page(rootId);
+        delete(r, key);
+        if (r.n == 0 && !r.leaf) {
+            rootId = r.children[0];
+            freePage(r.id);
+        }
+        endOperation();
+    }
+
+    /**
+     * Deletes a key below `node` and repairs the child it came out of on the way
+     * back up. A key in an internal page is replaced by its predecessor. `node`
+     * itself may be left short and is repaired by its parent.
+     * @return true if the key was found
+     */
+    private boolean delete(Page node, int key) {
+        int i = node.findKeyIndex(key);
+        if (i < node.n && node.keys[i] == key) {
+            if (node.leaf) {
+                node.removeKey(i);
+                node.dirty = true;
+                return true;
+            }
+            node.keys[i] = removeMax(page(node.children[i]));
+            node.dirty = true;
+        } else if (node.leaf || !delete(page(node.children[i]), key)) {
+            return false;
+        }
+        if (page(node.children[i]).n < minKeys) {
+            fixChild(node, i);
+        }
+        return true;
+    }
+
+    /**
+     * Removes and returns the largest key below the non-empty `node`, repairing
+     * the last child on every level; `node` itself may be left short.
+     */
+    private int removeMax(Page node) {
+        if (node.leaf) {
+            node.dirty = true;
+            return node.keys[--node.n];
+        }
+        Page last = page(node.children[node.n]);
+        int max = removeMax(last);
+        if (last.n < minKeys) {
+            fixChild(node, node.n);
+        }
+        return max;
+    }
+
+    /**
+     * Fixes the child at `childIndex`, which is one key short: merges it with a
+     * neighbour if the two fit in one page, otherwise evens the two out so both
+     * keep at least minKeys keys.
+     */
+    private void fixChild(Page parent, int childIndex) {
+        int left = (childIndex > 0) ? childIndex - 1 : childIndex;
+        Page leftChild = page(parent.children[left]);
+        Page rightChild = page(parent.children[left + 1]);
+
+        if (leftChild.n + 1 + rightChild.n <= maxKeys) {
+            merge(parent, left);
+            return;
+        }
+        while (leftChild.n > rightChild.n + 1) {
+            shiftKeyFromLeft(parent, rightChild, leftChild, left + 1);
+        }
+        while (rightChild.n > leftChild.n + 1) {
+            shiftKeyFromRight(parent, leftChild, rightChild, left);
+        }
+    }
+
+    private void shiftKeyFromLeft(Page parent, Page child, Page leftSibling, int childIndex) {
+        if (!leftSibling.leaf) {
+            child.insertChild(0, leftSibling.children[leftSibling.n], child.n + 1);
+        }
+
+        child.insertKey(0, parent.keys[childIndex - 1]);
+        parent.keys[childIndex - 1] = leftSibling.keys[--leftSibling.n];
+
+        parent.dirty = true;
+        child.dirty = true;
+        leftSibling.dirty = true;
+    }
+
+    private void shiftKeyFromRight(Page parent, Page child, Page rightSibling, int childIndex) {
+        if (!rightSibling.leaf) {
+            child.children[child.n + 1] = rightSibling.removeChild(0, rightSibling.n + 1);
+        }
+
+        child.keys[child.n++] = parent.keys[childIndex];
+        parent.keys[childIndex] = rightSibling.removeKey(0);
+
+        parent.dirty = true;
+        child.dirty = true;
+        rightSibling.dirty = true;
+    }
+
+    /**
+     * Merges the child at `leftChildIndex + 1` into the child at `leftChildIndex`
+     * and releases the right child's page.
+     */
+    private void merge(Page parent, int leftChildIndex) {
+        Page leftChild = page(parent.children[leftChildIndex]);
+        Page rightChild = page(parent.children[leftChildIndex + 1]);
+
+        leftChild.keys[leftChild.n] = parent.keys[leftChildIndex];
+        System.arraycopy(rightChild.keys, 0, leftChild.keys, leftChild.n + 1, rightChild.n);
+        if (!leftChild.leaf) {
+            System.arraycopy(rightChild.children, 0, leftChild.children, leftChild.n + 1, rightChild.n + 1);
+        }
+        leftChild.n += rightChild.n + 1;
+
+        parent.removeChild(leftChildIndex + 1, parent.n + 1);
+        parent.removeKey(leftChildIndex);
+
+        leftChild.dirty = true;
+        parent.dirty = true;
+        freePage(rightChild.id);
+    }
+
+    /**
+     * Walks the whole tree and throws IllegalStateException unless every node
+     * but the root holds between minKeys and maxKeys keys, keys are in order and
+     * all leaves sit at the same depth.
+     */
+    void checkShape() {
+        checkShape(page(rootId), true, Long.MIN_VALUE, Long.MAX_VALUE);
+        endOperation();
+    }
+
+    /**
+     * Checks the subtree under `node`, whose keys must lie strictly between
+     * `low` and `high`, and returns its height.
+     */
+    private int checkShape(Page node, boolean isRoot, long low, long high) {
+        if (node.n > maxKeys || (!isRoot && node.n < minKeys)) {
+            throw new IllegalStateException("Node " + node + " has " + node.n + " keys, expected "
+                    + (isRoot ? 0 : minKeys) + " to " + maxKeys);
+        }
+        for (int i = 0; i < node.n; i++) {
+            if (node.keys[i] <= (i == 0 ? low : node.keys[i - 1]) || node.keys[i] >= high) {
+                throw new IllegalStateException("Node " + node + " has keys out of order");
+            }
+        }
+        if (node.leaf) {
+            return 0;
+        }
+        int height = -1;
+        for (int i = 0; i <= node.n; i++) {
+            int childHeight = checkShape(page(node.children[i]), false,
+                    i == 0 ? low : node.keys[i - 1], i == node.n ? high : node.keys[i]);
+            if (height >= 0 && childHeight != height) {
+                throw new IllegalStateException("Leaves under " + node + " are at different depths");
+            }
+            height = childHeight;
+        }
+        return height + 1;
+    }
+
+    public void print() {
+        Page r = page(rootId);
+        if (r.n == 0) {
+            System.out.println("Tree (m=" + m + ") is empty.");
+        } else {
+            System.out.println("Paged B-Tree (m=" + m + "):");
+            printRecursive(r, "");
+        }
+        endOperation();
+    }
+
+    private void printRecursive(Page node, String indent) {
+        System.out.println(indent + node);
+
+        if (!node.leaf) {
+            String childIndent = indent + "  ";
+            for (int i = 0; i <= node.n; i++) {
+                printRecursive(page(node.children[i]), childIndent);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path file = Paths.get(args.length > 0 ? args[0] : "btree.pages");
+        Files.deleteIfExists(file);
+
+        System.out.println("==============================================");
+        System.out.println("=     Paged B-Tree: m = 4, pool = 8 pages    =");
+        System.out.println("==============================================");
+
+        try (PagedBTree tree = new PagedBTree(file, 4, 8)) {
+            System.out.println("Step 1: Inserting 1 to 20");
+            for (int i = 1; i <= 20; i++) {
+                tree.insert(i);
+            }
+            System.out.println("Step 2: Deleting even numbers");
+            for (int i = 2; i <= 20; i += 2) {
+                tree.delete(i);
+            }
+            tree.print();
+        }
+        System.out.println("----------------------------------------------");
+
+        System.out.println("Step 3: Reopening " + file + " without rebuilding");
+        try (PagedBTree tree = new PagedBTree(file, 4, 8)) {
+            tree.print();
+            System.out.println("search(7) = " + tree.search(7) + ", search(8) = " + tree.search(8));
+        }
+        System.out.println("----------------------------------------------");
+
+        System.out.println("Step 4: Logged tree, inserting 21 to 30 and abandoning it without close()");
+        Path log = Paths.get(file + ".wal");
+        PagedBTree crashed = new PagedBTree(file, 4, 64, 4);
+        for (int i = 21; i <= 30; i++) {
+            crashed.insert(i);
+        }
+        crashed.sync();
+        System.out.println("Log holds " + Files.size(log) + " bytes");
+
+        System.out.println("Step 5: Recovering from the log on open");
+        try (PagedBTree tree = new PagedBTree(file, 4, 64, 4)) {
+            tree.print();
+        }
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(log);
+        System.out.println("\n\n");
+
+
+        System.out.println("==============================================");
+        System.out.println("=     Paged B-Tree: odd orders m = 3, 5      =");
+        System.out.println("==============================================");
+
+        System.out.println("Step 1: m = 3, inserting 1 to 10");
+        try (PagedBTree tree = new PagedBTree(file, 3, 8)) {
+            for (int i = 1; i <= 10; i++) {
+                tree.insert(i);
+            }
+            tree.print();
+            System.out.println("Step 2: m = 3, deleting 4 (an internal key) and 7");
+            tree.delete(4);
+            tree.delete(7);
+            tree.print();
+        }
+        Files.deleteIfExists(file);
+        System.out.println("----------------------------------------------");
+
+        System.out.println("Step 3: Logged m = 5 tree, inserting 1 to 40, deleting multiples of 3, abandoning it");
+        PagedBTree crashedOdd = new PagedBTree(file, 5, 64, 4);
+        for (int i = 1; i <= 40; i++) {
+            crashedOdd.insert(i);
+        }
+        for (int i = 3; i <= 40; i += 3) {
+            crashedOdd.delete(i);
+        }
+        crashedOdd.sync();
+
+        System.out.println("Step 4: Recovering the m = 5 tree from the log on open");
+        try (PagedBTree tree = new PagedBTree(file, 5, 64, 4)) {
+            tree.print();
+            System.out.println("search(20) = " + tree.search(20) + ", search(21) = " + tree.search(21));
+        }
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(log);
+    }
+}
@@ -0,0 +1,327 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Persistent (immutable) version of {@link AVLTree}.
+ *
+ * Nodes never change once built. treeInsert and treeRemove copy only the
+ * O(log n) nodes on the path to the change, rebuild the rotations from fresh
+ * nodes, and share every other subtree with the previous version. The current
+ * version is published through an AtomicReference: a writer builds its new root
+ * from the version it read and installs it with compareAndSet, retrying if
+ * another writer got there first, so writers never block each other either.
+ *
+ * Readers take a {@link Version} and search or iterate it wait-free; it never
+ * changes underneath them. Versions nobody references any more are simply
+ * garbage-collected.
+ */
+public class PersistentAVLTree<Key extends Comparable> {
+    private final AtomicReference<Version> current = new AtomicReference<>(new Version(null));
+
+    private class Node {
+        final Key word;
+        final Node left, right;
+        final int height;
+        final int size; // number of nodes in the subtree rooted here
+
+        Node(Key word, Node left, Node right) {
+            this.word = word;
+            this.left = left;
+            this.right = right;
+            this.height = 1 + Math.max(height(left), height(right)); // leaf node has height 0
+            this.size = 1 + size(left) + size(right);
+        }
+    }
+
+    /**
+     * One immutable version of the tree.
+     */
+    public class Version implements Iterable<Key> {
+        private final Node root;
+
+        private Version(Node root) {
+            this.root = root;
+        }
+
+        public int size() {
+            return PersistentAVLTree.this.size(root);
+        }
+
+        public int treeSearch(Key word) {
+            Node current = root;
+            while (current != null) {
+                int cmp = word.compareTo(current.word);
+                if (cmp < 0) {
+                    current = current.left;
+                } else if (cmp > 0) {
+                    current = current.right;
+                } else {
+                    return 1;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Iterates the words of this version in order.
+         */
+        @Override
+        public Iterator<Key> iterator() {
+            return new InOrderIterator(root);
+        }
+    }
+
+    /**
+     * In-order iterator with an explicit stack; the tree height bounds its depth.
+     */
+    private class InOrderIterator implements Iterator<Key> {
+        private final Object[] stack = new Object[64]; // an AVL tree of 2^31 nodes is less than 45 high
+        private int depth;
+
+        InOrderIterator(Node root) {
+            pushLeft(root);
+        }
+
+        private void pushLeft(Node node) {
+            while (node != null) {
+                stack[depth++] = node;
+                node = node.left;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return depth > 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Key next() {
+            if (depth == 0) {
+                throw new NoSuchElementException();
+            }
+            Node node = (Node) stack[--depth];
+            stack[depth] = null;
+            pushLeft(node.right);
+            return node.word;
+        }
+    }
+
+    public PersistentAVLTree() {
+    }
+
+    /**
+     * The latest published version.
+     */
+    public Version snapshot() {
+        return current.get();
+    }
+
+    // --> core AVL helper functions <--
+    private int height(Node node) {
+        return (node == null) ? -1 : node.height;
+    }
+
+    private int size(Node node) {
+        return (node == null) ? 0 : node.size;
+    }
+
+    private int getBalanceFactor(Node node) {
+        return (node == null) ? 0 : height(node.left) - height(node.right);
+    }
+
+    private Node rightRotate(Node node) {
+        Node x = node.left;
+        return new Node(x.word, x.left, new Node(node.word, x.right, node.right));
+    }
+
+    private Node leftRotate(Node node) {
+        Node x = node.right;
+        return new Node(x.word, new Node(node.word, node.left, x.left), x.right);
+    }
+
+    /**
+     * Builds the node for `word` over the given subtrees and rebalances it.
+     */
+    private Node balance(Key word, Node left, Node right) {
+        Node node = new Node(word, left, right);
+        int balance = getBalanceFactor(node);
+
+        // LL Case
+        if (balance > 1 && getBalanceFactor(left) >= 0) {
+            return rightRotate(node);
+        }
+
+        // LR Case
+        if (balance > 1 && getBalanceFactor(left) < 0) {
+            return rightRotate(new Node(word, leftRotate(left), right));
+        }
+
+        // RR Case
+        if (balance < -1 && getBalanceFactor(right) <= 0) {
+            return leftRotate(node);
+        }
+
+        // RL Case
+        if (balance < -1 && getBalanceFactor(right) > 0) {
+            return leftRotate(new Node(word, left, rightRotate(right)));
+        }
+
+        return node;
+    }
+
+    public void treeInsert(Key word) {
+        while (true) {
+            Version base = current.get();
+            Node root = insert(base.root, word);
+            if (root == base.root || current.compareAndSet(base, new Version(root))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the root of the new version, or `node` itself if the word was already there
+     */
+    private Node insert(Node node, Key word) {
+        if (node == null) {
+            return new Node(word, null, null);
+        }
+        int cmp = word.compareTo(node.word);
+        if (cmp == 0) return node;
+        if (cmp < 0) {
+            Node left = insert(node.left, word);
+            return (left == node.left) ? node : balance(node.word, left, node.right);
+        }
+        Node right = insert(node.right, word);
+        return (right == node.right) ? node : balance(node.word, node.left, right);
+    }
+
+    public int treeSearch(Key word) {
+        return current.get().treeSearch(word);
+    }
+
+    public void treeRemove(Key word) {
+        while (true) {
+            Version base = current.get();
+            Node root = remove(base.root, word);
+            if (root == base.root || current.compareAndSet(base, new Version(root))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the root of the new version, or `node` itself if the word was not there
+     */
+    private Node remove(Node node, Key word) {
+        if (node == null) {
+            return null; // Word not found
+        }
+
+        int cmp = word.compareTo(node.word);
+        if (cmp < 0) {
+            Node left = remove(node.left, word);
+            return (left == node.left) ? node : balance(node.word, left, node.right);
+        }
+        if (cmp > 0) {
+            Node right = remove(node.right, word);
+            return (right == node.right) ? node : balance(node.word, node.left, right);
+        }
+        if (node.left == null || node.right == null) {
+            return (node.left != null) ? node.left : node.right;
+        }
+        // a new node takes the in-order successor's word; the old one is left untouched
+        Key successor = findMin(node.right).word;
+        return balance(successor, node.left, remove(node.right, successor));
+    }
+
+    private Node findMin(Node node) {
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node;
+    }
+
+    public int size() {
+        return current.get().size();
+    }
+
+    public void treeWalk() { // inorder traversal of the current version
+        for (Key word : current.get()) {
+            System.out.printf("%s%n", word);
+        }
+    }
+
+    public void printTree() {
+        printTree(current.get().root, 0);
+    }
+
+    private void printTree(Node node, int level) {
+        if (node == null) { return; }
+        printTree(node.right, level + 1);
+        for (int i = 0; i < level; i++) {
+            System.out.print("      ");
+        }
+        System.out.println(node.word + " (h:" + node.height + ", bf:" + getBalanceFactor(node) + ")");
+        printTree(node.left, level + 1);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        PersistentAVLTree<String> avl = new PersistentAVLTree<>();
+        String[] words = {"mango", "apple", "kiwi", "banana", "cherry", "pear", "fig", "grape"};
+        for (String word : words) {
+            avl.treeInsert(word);
+        }
+        PersistentAVLTree<String>.Version before = avl.snapshot();
+        avl.treeRemove("kiwi");
+        avl.treeRemove("mango");
+
+        System.out.println("Version taken before removing 'kiwi' and 'mango':");
+        for (String word : before) {
+            System.out.print(word + " ");
+        }
+        System.out.println("\nCurrent version:");
+        avl.printTree();
+
+        System.out.println("\nReading versions while 4 writers insert 50000 words each:");
+        PersistentAVLTree<Integer> numbers = new PersistentAVLTree<>();
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            final int offset = t;
+            writers[t] = new Thread(() -> {
+                for (int i = offset; i < 200_000; i += 4) {
+                    numbers.treeInsert(i);
+                }
+            });
+            writers[t].start();
+        }
+        int reads = 0;
+        boolean writing = true;
+        while (writing) {
+            writing = false;
+            for (Thread writer : writers) {
+                writing |= writer.isAlive();
+            }
+            PersistentAVLTree<Integer>.Version version = numbers.snapshot();
+            int count = 0;
+            Integer previous = null;
+            for (Integer n : version) {
+                if (previous != null && n <= previous) {
+                    throw new IllegalStateException("Version is out of order at " + n);
+                }
+                previous = n;
+                count++;
+            }
+            if (count != version.size()) {
+                throw new IllegalStateException("Version has " + count + " words, expected " + version.size());
+            }
+            reads++;
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        System.out.println(reads + " consistent scans; final version holds " + numbers.size() + " words.");
+    }
+}
@@ -0,0 +1,217 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact radix trie over a set of words, used as an optional side index for
+ * autocompletion by {@link AVLTree} and {@link BinarySearchTree}.
+ *
+ * Each edge is labelled with a whole run of characters rather than one, so a
+ * chain of single-child nodes collapses into one node and the trie has at most
+ * two nodes per word. Children are kept sorted by their first character and
+ * found by binary search. Completing a prefix costs O(|prefix|) to find the
+ * subtree of matches, plus the work of collecting `limit` of them. Each
+ * terminal node keeps a reference to its word, so completions are handed out
+ * without building strings. The completions come in String order, just as the
+ * trees' own prefixScan returns them.
+ */
+public class PrefixIndex {
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private static final class Node {
+        String label; // characters on the edge into this node
+        Node[] children = NO_CHILDREN; // sorted by first character
+        String word; // the word ending here, or null; shared with the caller, so it costs no extra string
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        int find(char first) { // index of the child starting with `first`, or -(insertion point) - 1
+            int lo = 0, hi = children.length - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                char c = children[mid].label.charAt(0);
+                if (c < first) {
+                    lo = mid + 1;
+                } else if (c > first) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(lo + 1);
+        }
+
+        void insertChild(int at, Node child) {
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, at);
+            grown[at] = child;
+            System.arraycopy(children, at, grown, at + 1, children.length - at);
+            children = grown;
+        }
+
+        void removeChild(int at) {
+            Node[] shrunk = (children.length == 1) ? NO_CHILDREN : new Node[children.length - 1];
+            System.arraycopy(children, 0, shrunk, 0, at);
+            System.arraycopy(children, at + 1, shrunk, at, children.length - at - 1);
+            children = shrunk;
+        }
+    }
+
+    private final Node root = new Node("");
+    private int size;
+
+    /**
+     * @return true if `word` was not in the index yet
+     */
+    public boolean add(String word) {
+        Node node = root;
+        int i = 0;
+        while (i < word.length()) {
+            int at = node.find(word.charAt(i));
+            if (at < 0) { // nothing shares the next character: hang the rest of the word here
+                Node leaf = new Node(word.substring(i));
+                leaf.word = word;
+                node.insertChild(-at - 1, leaf);
+                size++;
+                return true;
+            }
+            Node child = node.children[at];
+            int common = commonPrefix(child.label, word, i);
+            if (common < child.label.length()) { // split the edge where the word leaves it
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.children = new Node[] {child};
+                node.children[at] = middle;
+                child = middle;
+            }
+            node = child;
+            i += common;
+        }
+        if (node.word != null) {
+            return false;
+        }
+        node.word = word;
+        size++;
+        return true;
+    }
+
+    /**
+     * @return true if `word` was in the index
+     */
+    public boolean remove(String word) {
+        if (!remove(root, word, 0)) {
+            return false;
+        }
+        size--;
+        return true;
+    }
+
+    private boolean remove(Node node, String word, int i) {
+        if (i == word.length()) {
+            if (node.word == null) {
+                return false;
+            }
+            node.word = null;
+            return true;
+        }
+        int at = node.find(word.charAt(i));
+        if (at < 0) {
+            return false;
+        }
+        Node child = node.children[at];
+        if (!word.startsWith(child.label, i) || !remove(child, word, i + child.label.length())) {
+            return false;
+        }
+        // tidy up on the way back: drop empty leaves, merge pass-through nodes into their only child
+        if (child.word == null && child.children.length == 0) {
+            node.removeChild(at);
+        } else if (child.word == null && child.children.length == 1) {
+            Node only = child.children[0];
+            only.label = child.label + only.label;
+            node.children[at] = only;
+        }
+        return true;
+    }
+
+    public boolean contains(String word) {
+        Node node = root;
+        int i = 0;
+        while (i < word.length()) {
+            int at = node.find(word.charAt(i));
+            if (at < 0 || !word.startsWith(node.children[at].label, i)) {
+                return false;
+            }
+            node = node.children[at];
+            i += node.label.length();
+        }
+        return node.word != null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Up to `limit` words starting with `prefix`, in order.
+     */
+    public List<String> complete(String prefix, int limit) {
+        List<String> matches = new ArrayList<>(Math.min(Math.max(limit, 0), 64));
+        if (limit <= 0) {
+            return matches;
+        }
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            int at = node.find(prefix.charAt(i));
+            if (at < 0) {
+                return matches;
+            }
+            Node child = node.children[at];
+            int common = commonPrefix(child.label, prefix, i);
+            if (i + common < prefix.length() && common < child.label.length()) {
+                return matches; // the prefix leaves this edge halfway
+            }
+            node = child;
+            i += child.label.length();
+        }
+        collect(node, matches, limit);
+        return matches;
+    }
+
+    private void collect(Node node, List<String> matches, int limit) {
+        if (node.word != null) {
+            matches.add(node.word);
+        }
+        for (Node child : node.children) {
+            if (matches.size() >= limit) {
+                return;
+            }
+            collect(child, matches, limit);
+        }
+    }
+
+    /**
+     * Length of the common prefix of `label` and word[from, ...).
+     */
+    private static int commonPrefix(String label, String word, int from) {
+        int n = Math.min(label.length(), word.length() - from);
+        int i = 0;
+        while (i < n && label.charAt(i) == word.charAt(from + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    public static void main(String[] args) {
+        PrefixIndex index = new PrefixIndex();
+        for (String word : Arrays.asList("car", "card", "care", "careful", "cart", "cat", "dog")) {
+            index.add(word);
+        }
+        index.remove("care");
+        System.out.println("'car': " + index.complete("car", 10));
+        System.out.println("'care': " + index.complete("care", 10));
+        System.out.println("'c', 2: " + index.complete("c", 2));
+    }
+}
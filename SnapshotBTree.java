@@ -0,0 +1,585 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Copy-on-write version of {@link BTree} that hands out point-in-time snapshots.
+ *
+ * Published nodes are never modified. A writer copies each node before it
+ * changes it: the path from the root to the leaf it works on, plus any sibling
+ * it borrows from or merges with. Everything else is shared with the previous
+ * version. Once the operation is done the new root is published with a single
+ * volatile write, so readers see either the old tree or the new one, never a
+ * half-applied change.
+ *
+ * Readers call {@link #snapshot()} and traverse the returned handle without any
+ * locking, for as long as they like. Writers are serialized against each other.
+ * Old nodes that no snapshot references any more are reclaimed by the garbage
+ * collector.
+ */
+public class SnapshotBTree {
+    private volatile Snapshot current;
+    private final int m;
+    private final int maxKeys;
+    private final int minKeys;
+    private final int keyCapacity;
+    private long writeVersion; // version of the write in progress, guarded by `this`
+
+    private class BTreeNode {
+        final int[] keys;
+        final BTreeNode[] children;
+        final boolean leaf;
+        final long version; // the write that created this node and may still modify it
+        int n; // number of keys currently in use
+
+        BTreeNode(boolean leaf, long version) {
+            this.leaf = leaf;
+            this.version = version;
+            this.keys = new int[keyCapacity];
+            this.children = leaf ? null : new BTreeNode[keyCapacity + 1];
+        }
+
+        private BTreeNode(BTreeNode source, long version) {
+            this.leaf = source.leaf;
+            this.version = version;
+            this.keys = source.keys.clone();
+            this.children = leaf ? null : source.children.clone();
+            this.n = source.n;
+        }
+
+        /**
+         * Returns this node if the current write created it, otherwise a private copy.
+         */
+        BTreeNode writable(long version) {
+            return (this.version == version) ? this : new BTreeNode(this, version);
+        }
+
+        int findKeyIndex(int key) {
+            int lo = 0;
+            int hi = n;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid] < key) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        boolean isOverfull() {
+            return n > maxKeys;
+        }
+
+        void insertKey(int index, int key) {
+            System.arraycopy(keys, index, keys, index + 1, n - index);
+            keys[index] = key;
+            n++;
+        }
+
+        int removeKey(int index) {
+            int key = keys[index];
+            System.arraycopy(keys, index + 1, keys, index, n - index - 1);
+            n--;
+            return key;
+        }
+
+        void insertChild(int index, BTreeNode child, int childCount) {
+            System.arraycopy(children, index, children, index + 1, childCount - index);
+            children[index] = child;
+        }
+
+        BTreeNode removeChild(int index, int childCount) {
+            BTreeNode child = children[index];
+            System.arraycopy(children, index + 1, children, index, childCount - index - 1);
+            children[childCount - 1] = null;
+            return child;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(Arrays.copyOf(keys, n));
+        }
+    }
+
+    /**
+     * An immutable, point-in-time view of the tree. Safe to use from any thread
+     * without locking; later writes to the tree never show up in it.
+     */
+    public class Snapshot {
+        private final BTreeNode root;
+        private final long version;
+        private final int size;
+
+        private Snapshot(BTreeNode root, long version, int size) {
+            this.root = root;
+            this.version = version;
+            this.size = size;
+        }
+
+        /**
+         * The number of the write that produced this snapshot (0 for the empty tree).
+         */
+        public long version() {
+            return version;
+        }
+
+        /**
+         * Number of keys in this snapshot.
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Searches for a key in this snapshot.
+         *
+         * @param key The integer key to search for.
+         * @return true if the key is found, false otherwise.
+         */
+        public boolean search(int key) {
+            BTreeNode node = root;
+            while (true) {
+                int i = node.findKeyIndex(key);
+
+                if (i < node.n && node.keys[i] == key) {
+                    return true;
+                }
+
+                if (node.leaf) {
+                    return false;
+                }
+
+                node = node.children[i];
+            }
+        }
+
+        /**
+         * Iterates the keys of this snapshot in ascending order.
+         */
+        public PrimitiveIterator.OfInt iterator() {
+            return new InOrderCursor(root);
+        }
+    }
+
+    /**
+     * In-order walk over an immutable subtree with an explicit stack of
+     * (node, next key index) pairs, one per level.
+     */
+    private class InOrderCursor implements PrimitiveIterator.OfInt {
+        private final BTreeNode[] nodes = new BTreeNode[64];
+        private final int[] indexes = new int[64];
+        private int depth = -1;
+
+        InOrderCursor(BTreeNode root) {
+            descendLeft(root);
+        }
+
+        private void descendLeft(BTreeNode node) {
+            while (true) {
+                nodes[++depth] = node;
+                indexes[depth] = 0;
+                if (node.leaf) {
+                    return;
+                }
+                node = node.children[0];
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            // pop levels whose keys are all consumed
+            while (depth >= 0 && indexes[depth] >= nodes[depth].n) {
+                depth--;
+            }
+            return depth >= 0;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            BTreeNode node = nodes[depth];
+            int i = indexes[depth]++;
+            if (!node.leaf) {
+                descendLeft(node.children[i + 1]);
+            }
+            return node.keys[i];
+        }
+    }
+
+    /**
+     * Constructor for the snapshot B-Tree.
+     * @param m The order of the tree (e.g., 3 for a 2-3 tree)
+     */
+    public SnapshotBTree(int m) {
+        if (m < 3) {
+            throw new IllegalArgumentException("B-Tree order must be at least 3.");
+        }
+        this.m = m;
+        this.maxKeys = m - 1;
+        this.minKeys = (int) Math.ceil(m / 2.0) - 1;
+        // insert adds the key first and splits afterwards, so a node briefly holds maxKeys + 1
+        this.keyCapacity = maxKeys + 1;
+        this.current = new Snapshot(new BTreeNode(true, 0), 0, 0);
+    }
+
+    /**
+     * The latest published version of the tree.
+     */
+    public Snapshot snapshot() {
+        return current;
+    }
+
+    /**
+     * Searches for a key in the latest version of the tree.
+     */
+    public boolean search(int key) {
+        return current.search(key);
+    }
+
+    /**
+     * Returns the child at `index`, first replacing it with a copy owned by the
+     * current write if it is still shared with a published version. `parent`
+     * itself must already be writable.
+     */
+    private BTreeNode writableChild(BTreeNode parent, int index) {
+        BTreeNode child = parent.children[index].writable(writeVersion);
+        parent.children[index] = child;
+        return child;
+    }
+
+    /**
+     * Makes `newRoot` the current version. The volatile write orders every change
+     * made to the new nodes before any reader that picks up the new root.
+     */
+    private void publish(BTreeNode newRoot, int size) {
+        current = new Snapshot(newRoot, writeVersion, size);
+    }
+
+    /**
+     * Inserts a new key and publishes the resulting version.
+     *
+     * @param key The integer key to insert.
+     */
+    public synchronized void insert(int key) {
+        Snapshot base = current;
+        writeVersion++;
+        BTreeNode r = base.root.writable(writeVersion);
+        if (insert(r, key)) {
+            BTreeNode newRoot = new BTreeNode(false, writeVersion);
+            newRoot.children[0] = r;
+            splitChild(newRoot, 0);
+            r = newRoot;
+        }
+        publish(r, base.size + 1);
+    }
+
+    /**
+     * Inserts a key below the writable `node`, copying the path down to the
+     * leaf, and splits every child that overflows on the way back up. As in
+     * BTree, splitting after the fact lets both halves keep minKeys keys for odd
+     * orders too.
+     * @return true if `node` itself now holds one key too many
+     */
+    private boolean insert(BTreeNode node, int key) {
+        int i = node.findKeyIndex(key);
+
+        if (node.leaf) {
+            node.insertKey(i, key);
+        } else if (insert(writableChild(node, i), key)) {
+            splitChild(node, i);
+        }
+        return node.isOverfull();
+    }
+
+    /**
+     * Splits the overfull child at `childIndex` of a writable parent at its
+     * middle key, so each half keeps at least minKeys keys. The child is copied
+     * first; the new sibling belongs to the current write anyway.
+     */
+    private void splitChild(BTreeNode parent, int childIndex) {
+        BTreeNode fullChild = writableChild(parent, childIndex);
+        BTreeNode newSibling = new BTreeNode(fullChild.leaf, writeVersion);
+
+        int middle = fullChild.n / 2;
+        int middleKey = fullChild.keys[middle];
+        int moved = fullChild.n - middle - 1;
+
+        System.arraycopy(fullChild.keys, middle + 1, newSibling.keys, 0, moved);
+        newSibling.n = moved;
+
+        if (!fullChild.leaf) {
+            System.arraycopy(fullChild.children, middle + 1, newSibling.children, 0, moved + 1);
+            Arrays.fill(fullChild.children, middle + 1, fullChild.n + 1, null);
+        }
+        fullChild.n = middle;
+
+        parent.insertChild(childIndex + 1, newSibling, parent.n + 1);
+        parent.insertKey(childIndex, middleKey);
+    }
+
+    /**
+     * Deletes a key and publishes the resulting version. Deleting a key that is
+     * not present copies nothing and publishes nothing.
+     *
+     * @param key The integer key to delete.
+     */
+    public synchronized void delete(int key) {
+        Snapshot base = current;
+        if (!base.search(key)) {
+            return;
+        }
+        writeVersion++;
+        BTreeNode r = base.root.writable(writeVersion);
+        delete(r, key);
+        if (r.n == 0 && !r.leaf) {
+            r = r.children[0];
+        }
+        publish(r, base.size - 1);
+    }
+
+    /**
+     * Deletes a key that is known to be below the writable `node`, and repairs
+     * the child it came out of on the way back up. A key in an internal node is
+     * replaced by its predecessor. `node` itself may be left short and is
+     * repaired by its parent.
+     */
+    private void delete(BTreeNode node, int key) {
+        int i = node.findKeyIndex(key);
+        if (i < node.n && node.keys[i] == key) {
+            if (node.leaf) {
+                node.removeKey(i);
+                return;
+            }
+            node.keys[i] = removeMax(writableChild(node, i));
+        } else {
+            delete(writableChild(node, i), key);
+        }
+        if (node.children[i].n < minKeys) {
+            fixChild(node, i);
+        }
+    }
+
+    /**
+     * Removes and returns the largest key below the writable, non-empty `node`,
+     * repairing the last child on every level; `node` itself may be left short.
+     */
+    private int removeMax(BTreeNode node) {
+        if (node.leaf) {
+            return node.keys[--node.n];
+        }
+        int max = removeMax(writableChild(node, node.n));
+        if (node.children[node.n].n < minKeys) {
+            fixChild(node, node.n);
+        }
+        return max;
+    }
+
+    /**
+     * Fixes the child at `childIndex` of a writable parent, which is one key
+     * short: merges it with a neighbour if the two fit in one node, otherwise
+     * evens the two out so both keep at least minKeys keys.
+     */
+    private void fixChild(BTreeNode parent, int childIndex) {
+        int left = (childIndex > 0) ? childIndex - 1 : childIndex;
+        if (parent.children[left].n + 1 + parent.children[left + 1].n <= maxKeys) {
+            merge(parent, left);
+            return;
+        }
+        while (parent.children[left].n > parent.children[left + 1].n + 1) {
+            shiftKeyFromLeft(parent, left + 1);
+        }
+        while (parent.children[left + 1].n > parent.children[left].n + 1) {
+            shiftKeyFromRight(parent, left);
+        }
+    }
+
+    /**
+     * Borrows a key from the left sibling; both siblings are copied first.
+     */
+    private void shiftKeyFromLeft(BTreeNode parent, int childIndex) {
+        BTreeNode child = writableChild(parent, childIndex);
+        BTreeNode leftSibling = writableChild(parent, childIndex - 1);
+
+        if (!leftSibling.leaf) {
+            child.insertChild(0, leftSibling.children[leftSibling.n], child.n + 1);
+            leftSibling.children[leftSibling.n] = null;
+        }
+
+        child.insertKey(0, parent.keys[childIndex - 1]);
+        parent.keys[childIndex - 1] = leftSibling.keys[--leftSibling.n];
+    }
+
+    /**
+     * Borrows a key from the right sibling; both siblings are copied first.
+     */
+    private void shiftKeyFromRight(BTreeNode parent, int childIndex) {
+        BTreeNode child = writableChild(parent, childIndex);
+        BTreeNode rightSibling = writableChild(parent, childIndex + 1);
+
+        if (!rightSibling.leaf) {
+            child.children[child.n + 1] = rightSibling.removeChild(0, rightSibling.n + 1);
+        }
+
+        child.keys[child.n++] = parent.keys[childIndex];
+        parent.keys[childIndex] = rightSibling.removeKey(0);
+    }
+
+    /**
+     * Merges the child at `leftChildIndex + 1` into a copy of the child at
+     * `leftChildIndex`. The right child is only read, and drops out of the new version.
+     */
+    private void merge(BTreeNode parent, int leftChildIndex) {
+        BTreeNode leftChild = writableChild(parent, leftChildIndex);
+        BTreeNode rightChild = parent.children[leftChildIndex + 1];
+
+        leftChild.keys[leftChild.n] = parent.keys[leftChildIndex];
+        System.arraycopy(rightChild.keys, 0, leftChild.keys, leftChild.n + 1, rightChild.n);
+        if (!leftChild.leaf) {
+            System.arraycopy(rightChild.children, 0, leftChild.children, leftChild.n + 1, rightChild.n + 1);
+        }
+        leftChild.n += rightChild.n + 1;
+
+        parent.removeChild(leftChildIndex + 1, parent.n + 1);
+        parent.removeKey(leftChildIndex);
+    }
+
+    /**
+     * Walks the whole tree and throws IllegalStateException unless every node
+     * but the root holds between minKeys and maxKeys keys, keys are in order and
+     * all leaves sit at the same depth. Only
+     * looks at the latest version.
+     */
+    void checkShape() {
+        checkShape(current.root, true, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Checks the subtree under `node`, whose keys must lie strictly between
+     * `low` and `high`, and returns its height.
+     */
+    private int checkShape(BTreeNode node, boolean isRoot, long low, long high) {
+        if (node.n > maxKeys || (!isRoot && node.n < minKeys)) {
+            throw new IllegalStateException("Node " + node + " has " + node.n + " keys, expected "
+                    + (isRoot ? 0 : minKeys) + " to " + maxKeys);
+        }
+        for (int i = 0; i < node.n; i++) {
+            if (node.keys[i] <= (i == 0 ? low : node.keys[i - 1]) || node.keys[i] >= high) {
+                throw new IllegalStateException("Node " + node + " has keys out of order");
+            }
+        }
+        if (node.leaf) {
+            return 0;
+        }
+        int height = -1;
+        for (int i = 0; i <= node.n; i++) {
+            int childHeight = checkShape(node.children[i], false,
+                    i == 0 ? low : node.keys[i - 1], i == node.n ? high : node.keys[i]);
+            if (height >= 0 && childHeight != height) {
+                throw new IllegalStateException("Leaves under " + node + " are at different depths");
+            }
+            height = childHeight;
+        }
+        return height + 1;
+    }
+
+    public void print() {
+        print(current);
+    }
+
+    /**
+     * Prints the tree as it was in `snapshot`.
+     */
+    public void print(Snapshot snapshot) {
+        if (snapshot.root.n == 0) {
+            System.out.println("Tree (m=" + m + ", version " + snapshot.version + ") is empty.");
+        } else {
+            System.out.println("Snapshot B-Tree (m=" + m + ", version " + snapshot.version + "):");
+            printRecursive(snapshot.root, "");
+        }
+    }
+
+    private void printRecursive(BTreeNode node, String indent) {
+        System.out.println(indent + node);
+
+        if (!node.leaf) {
+            String childIndent = indent + "  ";
+            for (int i = 0; i <= node.n; i++) {
+                printRecursive(node.children[i], childIndent);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("==============================================");
+        System.out.println("=      SNAPSHOTS: m = 4, copy-on-write       =");
+        System.out.println("==============================================");
+
+        SnapshotBTree tree = new SnapshotBTree(4);
+        for (int i = 1; i <= 20; i++) {
+            tree.insert(i);
+        }
+        Snapshot before = tree.snapshot();
+
+        for (int i = 2; i <= 20; i += 2) {
+            tree.delete(i);
+        }
+        System.out.println("Step 1: Snapshot taken after inserting 1..20:");
+        tree.print(before);
+        System.out.println("Step 2: Current tree after deleting even numbers:");
+        tree.print();
+        System.out.println("----------------------------------------------");
+
+        System.out.println("Step 3: Scanning snapshots while a writer inserts 100000 keys");
+        Thread writer = new Thread(() -> {
+            for (int i = 21; i <= 100_020; i++) {
+                tree.insert(i);
+            }
+        });
+        writer.start();
+        int scans = 0;
+        while (writer.isAlive()) {
+            Snapshot snapshot = tree.snapshot();
+            int count = 0;
+            int previous = Integer.MIN_VALUE;
+            for (PrimitiveIterator.OfInt it = snapshot.iterator(); it.hasNext(); count++) {
+                int key = it.nextInt();
+                if (key <= previous) {
+                    throw new IllegalStateException("Snapshot " + snapshot.version() + " is out of order.");
+                }
+                previous = key;
+            }
+            if (count != snapshot.size()) {
+                throw new IllegalStateException("Snapshot " + snapshot.version() + " has " + count
+                        + " keys, expected " + snapshot.size() + ".");
+            }
+            scans++;
+        }
+        writer.join();
+        System.out.println(scans + " consistent scans; final version holds " + tree.snapshot().size() + " keys.");
+        System.out.println("\n\n");
+
+
+        System.out.println("==============================================");
+        System.out.println("=      SNAPSHOTS: m = 3 (2-3 tree)           =");
+        System.out.println("==============================================");
+
+        SnapshotBTree t3 = new SnapshotBTree(3);
+        for (int i = 1; i <= 15; i++) {
+            t3.insert(i);
+        }
+        Snapshot full = t3.snapshot();
+        t3.delete(8);
+        for (int i = 3; i <= 15; i += 3) {
+            t3.delete(i);
+        }
+        System.out.println("Step 1: Snapshot taken after inserting 1..15:");
+        t3.print(full);
+        System.out.println("Step 2: Current tree after deleting 8 and every multiple of 3:");
+        t3.print();
+        System.out.println("Step 3: snapshot search(9) = " + full.search(9) + ", current search(9) = " + t3.search(9));
+    }
+}
@@ -0,0 +1,330 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Parallel word-frequency counting on top of {@link BinarySearchTree}'s counters.
+ *
+ * The input files are cut into chunks at word boundaries. Worker threads take
+ * chunks from a shared counter and tokenize them with their own
+ * {@link WordIngest}, so they share no mutable state while counting. Each
+ * worker counts into its own set of hash-sharded trees: a word always goes to
+ * shard hash(word) % shards. When all chunks are done, the workers' trees of
+ * each shard are merged in order with {@link BinarySearchTree#mergeCounts},
+ * the shards in parallel. The merged shards stay behind a {@link ShardedCounts}
+ * router, since every word lives in exactly one of them.
+ *
+ * Usage: java WordFrequencyEngine [threads] file...
+ */
+public class WordFrequencyEngine {
+    private static final long MIN_CHUNK_BYTES = 1L << 22; // 4 MiB
+    private static final int CHUNKS_PER_THREAD = 4; // spare chunks even out uneven workers
+
+    /**
+     * Bytes [from, to) of one file, cut between words.
+     */
+    private static class Chunk {
+        final Path file;
+        final long from, to;
+
+        Chunk(Path file, long from, long to) {
+            this.file = file;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /**
+     * The merged counts, one tree per shard. treeSearch looks in the only shard
+     * the word can be in.
+     */
+    public static class ShardedCounts {
+        private final BinarySearchTree<String>[] shards;
+        private final long total;
+
+        private ShardedCounts(BinarySearchTree<String>[] shards, long total) {
+            this.shards = shards;
+            this.total = total;
+        }
+
+        /**
+         * How many times `word` was counted, or 0.
+         */
+        public int treeSearch(String word) {
+            return shards[shardOf(word, shards.length)].treeSearch(word);
+        }
+
+        /**
+         * Number of distinct words.
+         */
+        public int size() {
+            int size = 0;
+            for (BinarySearchTree<String> shard : shards) {
+                size += shard.size();
+            }
+            return size;
+        }
+
+        /**
+         * Number of words read, repeats included.
+         */
+        public long total() {
+            return total;
+        }
+
+        public int shardCount() {
+            return shards.length;
+        }
+
+        /**
+         * The tree holding the words of shard `i`, in word order.
+         */
+        public BinarySearchTree<String> shard(int i) {
+            return shards[i];
+        }
+
+        /**
+         * All counts merged into one tree, e.g. to walk every word in order.
+         */
+        public BinarySearchTree<String> merged() {
+            return BinarySearchTree.mergeCounts(List.of(shards));
+        }
+    }
+
+    private static int shardOf(String word, int shards) {
+        int h = word.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), shards); // fold the high bits in, like HashMap
+    }
+
+    /**
+     * Counts the words of `files` with `threads` workers into as many shards.
+     */
+    public static ShardedCounts count(int threads, Path... files) throws IOException {
+        return count(threads, threads, files);
+    }
+
+    /**
+     * Counts the words of `files` with `threads` workers into `shards` shards.
+     * Words are tokenized exactly as {@link WordIngest} does. If a worker fails,
+     * the others stop taking work and its exception is rethrown here, once all
+     * of them have finished.
+     */
+    public static ShardedCounts count(int threads, int shards, Path... files) throws IOException {
+        if (threads < 1 || shards < 1) {
+            throw new IllegalArgumentException("Need at least one thread and one shard.");
+        }
+        List<Chunk> chunks = split(files, threads * CHUNKS_PER_THREAD);
+        BinarySearchTree<String>[] partial = newTrees(shards * threads); // shard s of worker t at s * threads + t
+        long[] words = new long[threads];
+        Throwable[] failure = new Throwable[threads];
+        AtomicInteger nextChunk = new AtomicInteger();
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int worker = t;
+            workers[t] = new Thread(() -> {
+                BinarySearchTree<String>[] trees = newTrees(shards);
+                for (int s = 0; s < shards; s++) {
+                    trees[s] = new BinarySearchTree<>();
+                }
+                WordIngest ingest = new WordIngest((batch, n) -> {
+                    for (int i = 0; i < n; i++) {
+                        trees[shardOf(batch[i], shards)].treeInsert(batch[i]);
+                    }
+                });
+                try {
+                    for (int c; (c = nextChunk.getAndIncrement()) < chunks.size(); ) {
+                        Chunk chunk = chunks.get(c);
+                        try (FileChannel channel = FileChannel.open(chunk.file, StandardOpenOption.READ)) {
+                            ingest.readRange(channel, chunk.from, chunk.to);
+                        }
+                    }
+                    ingest.flush();
+                } catch (Throwable e) {
+                    failure[worker] = e;
+                    nextChunk.set(chunks.size()); // no point in counting the rest
+                }
+                for (int s = 0; s < shards; s++) {
+                    partial[s * threads + worker] = trees[s];
+                }
+                words[worker] = ingest.words();
+            }, "word-counter-" + t);
+            workers[t].start();
+        }
+        joinAll(workers);
+        rethrow(failure);
+        long total = 0;
+        for (int t = 0; t < threads; t++) {
+            total += words[t];
+        }
+
+        // merge shard by shard; the shards are independent, so the workers split them up
+        BinarySearchTree<String>[] merged = newTrees(shards);
+        List<BinarySearchTree<String>> byShard = Arrays.asList(partial);
+        AtomicInteger nextShard = new AtomicInteger();
+        for (int t = 0; t < threads; t++) {
+            final int worker = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    for (int s; (s = nextShard.getAndIncrement()) < shards; ) {
+                        merged[s] = BinarySearchTree.mergeCounts(byShard.subList(s * threads, (s + 1) * threads));
+                    }
+                } catch (Throwable e) {
+                    failure[worker] = e;
+                    nextShard.set(shards);
+                }
+            }, "word-merger-" + t);
+            workers[t].start();
+        }
+        joinAll(workers);
+        rethrow(failure);
+        return new ShardedCounts(merged, total);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BinarySearchTree<String>[] newTrees(int n) {
+        return (BinarySearchTree<String>[]) new BinarySearchTree<?>[n];
+    }
+
+    /**
+     * Rethrows the first failure a worker recorded, with any others attached
+     * as suppressed exceptions. IOExceptions, RuntimeExceptions and Errors are
+     * thrown as they are, anything else is wrapped.
+     */
+    private static void rethrow(Throwable[] failure) throws IOException {
+        Throwable first = null;
+        for (Throwable e : failure) {
+            if (e == null) {
+                continue;
+            }
+            if (first == null) {
+                first = e;
+            } else if (e != first) {
+                first.addSuppressed(e);
+            }
+        }
+        if (first instanceof IOException) {
+            throw (IOException) first;
+        } else if (first instanceof RuntimeException) {
+            throw (RuntimeException) first;
+        } else if (first instanceof Error) {
+            throw (Error) first;
+        } else if (first != null) {
+            throw new IllegalStateException("A word counting worker failed.", first);
+        }
+    }
+
+    private static void joinAll(Thread[] threads) {
+        boolean interrupted = false;
+        for (Thread thread : threads) {
+            while (true) {
+                try {
+                    thread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true; // the workers cannot be abandoned halfway, so keep waiting
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Cuts `files` into about `target` chunks of at least MIN_CHUNK_BYTES. Each
+     * cut is moved forward to the next ASCII byte that is not a letter or digit,
+     * so no word, and no multi-byte character, is split between two chunks.
+     */
+    private static List<Chunk> split(Path[] files, int target) throws IOException {
+        long totalBytes = 0;
+        for (Path file : files) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                totalBytes += channel.size();
+            }
+        }
+        long chunkBytes = Math.max(MIN_CHUNK_BYTES, totalBytes / target + 1);
+
+        List<Chunk> chunks = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        for (Path file : files) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                long from = 0;
+                while (from < size) {
+                    long to = (size - from <= chunkBytes) ? size : nextBoundary(channel, from + chunkBytes, probe);
+                    chunks.add(new Chunk(file, from, to));
+                    from = to;
+                }
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * The first offset at or after `offset` whose byte is a separator byte, or
+     * the file size.
+     */
+    private static long nextBoundary(FileChannel channel, long offset, ByteBuffer probe) throws IOException {
+        while (true) {
+            probe.clear();
+            int read = channel.read(probe, offset);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (WordIngest.isSeparatorByte(probe.get(i))) {
+                    return offset + i;
+                }
+            }
+            offset += read;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java WordFrequencyEngine [threads] file...");
+            return;
+        }
+        int first = 0;
+        int cores = Runtime.getRuntime().availableProcessors();
+        int[] threadCounts = IntStream.of(1, 2, 4, cores).distinct().sorted().toArray();
+        if (args[0].matches("\\d+")) {
+            threadCounts = new int[] {Integer.parseInt(args[0])};
+            first = 1;
+        }
+        Path[] files = new Path[args.length - first];
+        for (int i = first; i < args.length; i++) {
+            files[i - first] = Path.of(args[i]);
+        }
+
+        long start = System.nanoTime();
+        BinarySearchTree<String> single = new BinarySearchTree<>();
+        long words = WordIngest.ingest(single, files);
+        double baseline = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-20s: %d words (%d distinct) in %.2f s: %.0f words/sec%n",
+                "WordIngest, 1 tree", words, single.size(), baseline, words / baseline);
+
+        for (int threads : threadCounts) {
+            start = System.nanoTime();
+            ShardedCounts counts = count(threads, files);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%-20s: %d words (%d distinct) in %.2f s: %.0f words/sec (%.2fx, %d cores)%n",
+                    threads + " threads", counts.total(), counts.size(), seconds, counts.total() / seconds,
+                    baseline / seconds, cores);
+            for (String word : single) {
+                if (counts.treeSearch(word) != single.treeSearch(word)) {
+                    throw new IllegalStateException("'" + word + "' counted " + counts.treeSearch(word)
+                            + " times, expected " + single.treeSearch(word));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,324 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Batch word ingestion from text files for the word trees.
+ *
+ * Files are memory-mapped a region at a time, so a multi-gigabyte corpus never
+ * has to fit in the heap. The bytes are tokenized in place: a word is a run of
+ * characters for which Character.isLetterOrDigit holds. ASCII bytes are
+ * checked directly, other characters are decoded from UTF-8 first, so an
+ * accented word stays whole while punctuation such as a non-breaking space or
+ * an em dash still ends it. Letters are lowercased with Character.toLowerCase
+ * while they are copied into one reusable buffer. The only object made per
+ * word is the String the tree keeps as its key. There are no per-line Strings.
+ * Words are handed to the tree in batches. A {@link WordSink} gets the bytes
+ * straight from the buffer instead, so no String is made at all.
+ *
+ * Usage: java WordIngest [avl|bst] file...
+ */
+public class WordIngest {
+    private static final long REGION_BYTES = 1L << 28; // 256 MiB mapped at a time
+    private static final int BATCH_SIZE = 8192;
+
+    /**
+     * Receives the words of one batch, in file order, in words[0, count).
+     */
+    public interface BatchSink {
+        void accept(String[] words, int count);
+    }
+
+    /**
+     * Receives each word as lowercased UTF-8 in word[from, from + length). The
+     * array is the tokenizer's reusable buffer, so the bytes are only valid
+     * during the call.
+     */
+    public interface WordSink {
+        void accept(byte[] word, int from, int length);
+    }
+
+    private final BatchSink sink;
+    private final WordSink wordSink;
+    private final String[] batch;
+    private int batched;
+    private byte[] word = new byte[64];
+    private int length;
+    private boolean ascii = true;
+    private long words;
+
+    WordIngest(BatchSink sink) {
+        this.sink = sink;
+        this.wordSink = null;
+        this.batch = new String[BATCH_SIZE];
+    }
+
+    WordIngest(WordSink wordSink) {
+        this.sink = null;
+        this.wordSink = wordSink;
+        this.batch = null;
+    }
+
+    /**
+     * Whether `b` always ends a word: an ASCII byte that is not a letter or
+     * digit. Such a byte is never part of a multi-byte UTF-8 character, so text
+     * can be cut right before it.
+     */
+    static boolean isSeparatorByte(byte b) {
+        return b >= 0 && !isAsciiLetterOrDigit(b);
+    }
+
+    private static boolean isAsciiLetterOrDigit(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9');
+    }
+
+    /**
+     * Tokenizes `files` in order and feeds the words to `sink` in batches.
+     * @return the number of words read
+     */
+    public static long ingest(BatchSink sink, Path... files) throws IOException {
+        return new WordIngest(sink).readAll(files);
+    }
+
+    /**
+     * Tokenizes `files` in order and hands each word to `sink` as bytes.
+     * @return the number of words read
+     */
+    public static long ingest(WordSink sink, Path... files) throws IOException {
+        return new WordIngest(sink).readAll(files);
+    }
+
+    /**
+     * Inserts every word of `files` into `tree`.
+     * @return the number of words read
+     */
+    public static long ingest(AVLTree<String> tree, Path... files) throws IOException {
+        return ingest((words, count) -> {
+            for (int i = 0; i < count; i++) {
+                tree.treeInsert(words[i]);
+            }
+        }, files);
+    }
+
+    /**
+     * Inserts every word of `files` into `tree`, counting repeats.
+     * @return the number of words read
+     */
+    public static long ingest(BinarySearchTree<String> tree, Path... files) throws IOException {
+        return ingest((words, count) -> {
+            for (int i = 0; i < count; i++) {
+                tree.treeInsert(words[i]);
+            }
+        }, files);
+    }
+
+    /**
+     * Counts every word of `files` in `tree`.
+     * @return the number of words read
+     */
+    public static long ingest(ArenaWordTree tree, Path... files) throws IOException {
+        return ingest((word, from, length) -> tree.treeInsert(word, from, length), files);
+    }
+
+    private long readAll(Path... files) throws IOException {
+        for (Path file : files) {
+            readFile(file);
+        }
+        flush();
+        return words;
+    }
+
+    private void readFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            readRange(channel, 0, channel.size());
+        }
+    }
+
+    /**
+     * Tokenizes bytes [from, to) of `channel`. The end of the range ends a word,
+     * so ranges should be cut between words.
+     */
+    void readRange(FileChannel channel, long from, long to) throws IOException {
+        long offset = from;
+        while (offset < to) {
+            // a word cut by the region boundary simply carries on in `word`
+            long size = Math.min(REGION_BYTES, to - offset);
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+            offset += tokenize(region, offset + size == to);
+        }
+        endWord();
+    }
+
+    /**
+     * Tokenizes `region` and returns how many of its bytes were used. A UTF-8
+     * character cut off by the end of the region is left for the next region,
+     * unless `last` says there is none. Malformed UTF-8 ends the current word.
+     */
+    private int tokenize(MappedByteBuffer region, boolean last) {
+        int limit = region.limit();
+        int i = 0;
+        while (i < limit) {
+            byte b = region.get(i);
+            if (b >= 0) {
+                if (b >= 'A' && b <= 'Z') {
+                    append((byte) (b + ('a' - 'A')));
+                } else if (isAsciiLetterOrDigit(b)) {
+                    append(b);
+                } else {
+                    endWord();
+                }
+                i++;
+                continue;
+            }
+
+            int bytes = sequenceLength(b);
+            if (i + bytes > limit && !last) {
+                break;
+            }
+            int codePoint = decode(region, i, bytes);
+            if (codePoint < 0) {
+                endWord();
+                i++; // skip the bad byte; whatever follows is looked at on its own
+            } else {
+                if (Character.isLetterOrDigit(codePoint)) {
+                    appendCodePoint(Character.toLowerCase(codePoint));
+                } else {
+                    endWord();
+                }
+                i += bytes;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Length of the UTF-8 sequence that starts with the non-ASCII byte `lead`,
+     * or 1 if `lead` cannot start one.
+     */
+    private static int sequenceLength(byte lead) {
+        int u = lead & 0xFF;
+        if (u >= 0xC2 && u <= 0xDF) {
+            return 2;
+        } else if (u >= 0xE0 && u <= 0xEF) {
+            return 3;
+        } else if (u >= 0xF0 && u <= 0xF4) {
+            return 4;
+        }
+        return 1;
+    }
+
+    /**
+     * Decodes the `bytes`-byte UTF-8 sequence at `at`, or returns -1 if it is
+     * malformed, truncated, overlong or encodes a surrogate.
+     */
+    private static int decode(MappedByteBuffer region, int at, int bytes) {
+        if (bytes == 1 || at + bytes > region.limit()) {
+            return -1;
+        }
+        int codePoint = region.get(at) & (0x7F >> bytes);
+        for (int k = 1; k < bytes; k++) {
+            byte next = region.get(at + k);
+            if ((next & 0xC0) != 0x80) {
+                return -1;
+            }
+            codePoint = (codePoint << 6) | (next & 0x3F);
+        }
+        int smallest = (bytes == 2) ? 0x80 : (bytes == 3) ? 0x800 : 0x10000;
+        if (codePoint < smallest || codePoint > Character.MAX_CODE_POINT
+                || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+            return -1;
+        }
+        return codePoint;
+    }
+
+    private void append(byte b) {
+        if (length == word.length) {
+            word = Arrays.copyOf(word, length * 2);
+        }
+        word[length++] = b;
+    }
+
+    /**
+     * Appends `codePoint` to the word, encoded as UTF-8.
+     */
+    private void appendCodePoint(int codePoint) {
+        if (codePoint < 0x80) {
+            append((byte) codePoint);
+            return;
+        }
+        ascii = false;
+        if (codePoint < 0x800) {
+            append((byte) (0xC0 | (codePoint >> 6)));
+        } else {
+            if (codePoint < 0x10000) {
+                append((byte) (0xE0 | (codePoint >> 12)));
+            } else {
+                append((byte) (0xF0 | (codePoint >> 18)));
+                append((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+            }
+            append((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+        }
+        append((byte) (0x80 | (codePoint & 0x3F)));
+    }
+
+    private void endWord() {
+        if (length == 0) {
+            return;
+        }
+        words++;
+        if (wordSink != null) {
+            wordSink.accept(word, 0, length);
+        } else {
+            // ISO-8859-1 is a plain byte copy for pure ASCII words
+            batch[batched++] = new String(word, 0, length, ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+        }
+        length = 0;
+        ascii = true;
+        if (batched == BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    long words() {
+        return words;
+    }
+
+    void flush() {
+        if (batched > 0) {
+            sink.accept(batch, batched);
+            Arrays.fill(batch, 0, batched, null);
+            batched = 0;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java WordIngest [avl|bst] file...");
+            return;
+        }
+        Path[] files = new Path[args.length - 1];
+        for (int i = 1; i < args.length; i++) {
+            files[i - 1] = Path.of(args[i]);
+        }
+
+        long start = System.nanoTime();
+        long words;
+        int distinct;
+        if (args[0].equals("avl")) {
+            AVLTree<String> tree = new AVLTree<>();
+            words = ingest(tree, files);
+            distinct = tree.size();
+        } else {
+            BinarySearchTree<String> tree = new BinarySearchTree<>();
+            words = ingest(tree, files);
+            distinct = tree.size();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d words (%d distinct) in %.2f s: %.0f words/sec%n",
+                words, distinct, seconds, words / seconds);
+    }
+}
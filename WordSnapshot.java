@@ -0,0 +1,336 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary snapshot format shared by AVLTree.save/load and
+ * BinarySearchTree.save/load.
+ *
+ * A snapshot holds the words of a tree in order, so loading can rebuild a
+ * balanced tree directly in O(n) instead of calling treeInsert once per word.
+ * Layout (big-endian):
+ *
+ *   header  magic "WSNP", version (1 byte), kind (1 byte), word count (8 bytes)
+ *   blocks  raw length, compressed length, CRC32C of the raw bytes (4 bytes each),
+ *           then the deflate-compressed block
+ *
+ * A raw block is a run of records: the UTF-8 length of a word as a varint, its
+ * bytes, and for BST snapshots its counter as a varint. Blocks hold about
+ * BLOCK_BYTES of records each. A snapshot is written to a temporary file that
+ * is then moved over the target, so a crash never leaves a half-written
+ * snapshot behind.
+ */
+final class WordSnapshot {
+    static final byte AVL = 1;
+    static final byte BST = 2;
+
+    private static final int MAGIC = 0x57534E50; // "WSNP"
+    private static final byte VERSION = 1;
+    private static final int HEADER_BYTES = 14;
+    private static final int BLOCK_HEADER_BYTES = 12;
+    private static final int BLOCK_BYTES = 1 << 20;
+    private static final int MAX_DEFLATE_RATIO = 1032; // deflate cannot expand a stream more than this
+    private static final int INITIAL_WORDS = 1 << 16; // read() grows from here instead of trusting the header
+
+    private WordSnapshot() {}
+
+    /**
+     * What a snapshot holds: the words in ascending order and, for BST
+     * snapshots, their counters (null for AVL ones).
+     */
+    static final class Contents {
+        final List<String> words;
+        final int[] counts;
+
+        Contents(List<String> words, int[] counts) {
+            this.words = words;
+            this.counts = counts;
+        }
+    }
+
+    /**
+     * Writes records to a snapshot file, one block at a time.
+     */
+    static final class Writer implements AutoCloseable {
+        private final Path file;
+        private final Path temp;
+        private final byte kind;
+        private final DataOutputStream out;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final CRC32C crc = new CRC32C();
+        private byte[] raw = new byte[BLOCK_BYTES + 64];
+        private byte[] compressed = new byte[BLOCK_BYTES];
+        private int rawLength;
+        private long written;
+        private final long expected;
+        private boolean finished;
+
+        Writer(Path file, byte kind, long words) throws IOException {
+            this.file = file;
+            this.temp = file.resolveSibling(file.getFileName() + ".tmp");
+            this.kind = kind;
+            this.expected = words;
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(kind);
+            out.writeLong(words);
+        }
+
+        /**
+         * Appends `word`; `count` is only written for BST snapshots.
+         */
+        void add(String word, int count) throws IOException {
+            byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+            ensureRoom(bytes.length + 10);
+            rawLength = putVarint(raw, rawLength, bytes.length);
+            System.arraycopy(bytes, 0, raw, rawLength, bytes.length);
+            rawLength += bytes.length;
+            if (kind == BST) {
+                rawLength = putVarint(raw, rawLength, count);
+            }
+            written++;
+            if (rawLength >= BLOCK_BYTES) {
+                flushBlock();
+            }
+        }
+
+        private void ensureRoom(int bytes) {
+            if (rawLength + bytes > raw.length) { // only a single huge word gets here
+                raw = Arrays.copyOf(raw, rawLength + bytes);
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            if (rawLength == 0) {
+                return;
+            }
+            crc.reset();
+            crc.update(raw, 0, rawLength);
+            deflater.reset();
+            deflater.setInput(raw, 0, rawLength);
+            deflater.finish();
+            int compressedLength = 0;
+            while (!deflater.finished()) {
+                if (compressedLength == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+            }
+            out.writeInt(rawLength);
+            out.writeInt(compressedLength);
+            out.writeInt((int) crc.getValue());
+            out.write(compressed, 0, compressedLength);
+            rawLength = 0;
+        }
+
+        /**
+         * Flushes the last block and moves the snapshot into place.
+         */
+        void finish() throws IOException {
+            if (written != expected) {
+                throw new IllegalStateException("Snapshot announced " + expected + " words but got " + written + ".");
+            }
+            flushBlock();
+            out.close();
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            finished = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            deflater.end();
+            if (!finished) { // failed halfway: drop the partial file, keep any previous snapshot
+                out.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    private static int putVarint(byte[] buffer, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    /**
+     * Memory-maps `file`, checks and inflates its blocks, and returns its words.
+     *
+     * The word count and block lengths in the file are checked against its size
+     * before anything is allocated for them, so a corrupt header cannot make
+     * this run out of memory before the checksums are looked at.
+     *
+     * @throws IOException if the file is not a snapshot of the given kind, a
+     *         checksum does not match, or the words are not strictly ascending
+     */
+    static Contents read(Path file, byte kind) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot '" + file + "' is too large to map.");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+                throw new IOException("'" + file + "' is not a word snapshot.");
+            }
+            byte version = buffer.get();
+            byte fileKind = buffer.get();
+            if (version != VERSION || fileKind != kind) {
+                throw new IOException("'" + file + "' is a version " + version + " snapshot of kind " + fileKind
+                        + ", expected version " + VERSION + " of kind " + kind + ".");
+            }
+            long total = buffer.getLong();
+            // a record takes at least 2 raw bytes (only the empty word fits in 1), and
+            // no byte of the file inflates to more than MAX_DEFLATE_RATIO raw bytes
+            long maxWords = (long) buffer.remaining() * MAX_DEFLATE_RATIO / 2 + 1;
+            if (total < 0 || total > Integer.MAX_VALUE - 8 || total > maxWords) {
+                throw new IOException("Snapshot '" + file + "' claims " + total + " words.");
+            }
+
+            int initial = (int) Math.min(total, INITIAL_WORDS);
+            List<String> words = new ArrayList<>(initial);
+            int[] counts = (kind == BST) ? new int[initial] : null;
+            Inflater inflater = new Inflater();
+            CRC32C crc = new CRC32C();
+            byte[] raw = new byte[BLOCK_BYTES + 64];
+            String previous = null;
+            try {
+                for (int block = 0; words.size() < total; block++) {
+                    if (buffer.remaining() < BLOCK_HEADER_BYTES) {
+                        throw new IOException("Snapshot '" + file + "' is truncated at block " + block + ".");
+                    }
+                    int rawLength = buffer.getInt();
+                    int compressedLength = buffer.getInt();
+                    int checksum = buffer.getInt();
+                    if (rawLength <= 0 || compressedLength <= 0 || compressedLength > buffer.remaining()
+                            || rawLength > Integer.MAX_VALUE - 8
+                            || rawLength > (long) compressedLength * MAX_DEFLATE_RATIO) {
+                        throw new IOException("Snapshot '" + file + "' has a corrupt header in block " + block + ".");
+                    }
+                    if (raw.length < rawLength) {
+                        raw = new byte[rawLength];
+                    }
+                    ByteBuffer input = buffer.slice().limit(compressedLength);
+                    buffer.position(buffer.position() + compressedLength);
+                    inflater.reset();
+                    inflater.setInput(input);
+                    if (inflater.inflate(raw, 0, rawLength) != rawLength || !inflater.finished()) {
+                        throw new IOException("Snapshot '" + file + "' has a corrupt block " + block + ".");
+                    }
+                    crc.reset();
+                    crc.update(raw, 0, rawLength);
+                    if ((int) crc.getValue() != checksum) {
+                        throw new IOException("Checksum mismatch in block " + block + " of snapshot '" + file + "'.");
+                    }
+
+                    int position = 0;
+                    while (position < rawLength) {
+                        if (words.size() == total) {
+                            throw new IOException("Snapshot '" + file + "' holds more words than it claims.");
+                        }
+                        long length = 0;
+                        for (int shift = 0; ; shift += 7) { // varint
+                            byte b = raw[position++];
+                            length |= (long) (b & 0x7F) << shift;
+                            if (b >= 0) break;
+                        }
+                        String word = new String(raw, position, (int) length, StandardCharsets.UTF_8);
+                        position += (int) length;
+                        if (counts != null) {
+                            int count = 0;
+                            for (int shift = 0; ; shift += 7) {
+                                byte b = raw[position++];
+                                count |= (b & 0x7F) << shift;
+                                if (b >= 0) break;
+                            }
+                            if (words.size() == counts.length) {
+                                counts = Arrays.copyOf(counts, (int) Math.min(total, 2L * counts.length));
+                            }
+                            counts[words.size()] = count;
+                        }
+                        if (previous != null && word.compareTo(previous) <= 0) {
+                            throw new IOException("Snapshot '" + file + "' is out of order at '" + word + "'.");
+                        }
+                        words.add(word);
+                        previous = word;
+                    }
+                }
+            } catch (DataFormatException | IndexOutOfBoundsException e) {
+                throw new IOException("Snapshot '" + file + "' is corrupt: " + e.getMessage(), e);
+            } finally {
+                inflater.end();
+            }
+            if (buffer.hasRemaining()) {
+                throw new IOException("Snapshot '" + file + "' has trailing bytes.");
+            }
+            return new Contents(words, counts);
+        }
+    }
+
+    /**
+     * Compares a cold start from text with a warm start from a snapshot.
+     * Usage: java WordSnapshot snapshot-file text-file...
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java WordSnapshot snapshot-file text-file...");
+            return;
+        }
+        Path snapshot = Path.of(args[0]);
+        Path[] files = new Path[args.length - 1];
+        for (int i = 1; i < args.length; i++) {
+            files[i - 1] = Path.of(args[i]);
+        }
+
+        long start = System.nanoTime();
+        BinarySearchTree<String> tree = new BinarySearchTree<>();
+        long words = WordIngest.ingest(tree, files);
+        double ingest = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-26s: %8.2f s  (%d words, %d distinct)%n", "BST from text", ingest, words, tree.size());
+
+        start = System.nanoTime();
+        tree.save(snapshot);
+        double save = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-26s: %8.2f s  (%d bytes)%n", "BST save", save, Files.size(snapshot));
+
+        start = System.nanoTime();
+        BinarySearchTree<String> loaded = BinarySearchTree.load(snapshot);
+        double load = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-26s: %8.2f s  (%.1fx faster than text)%n", "BST load", load, ingest / load);
+        for (String word : tree) {
+            if (loaded.treeSearch(word) != tree.treeSearch(word)) {
+                throw new IllegalStateException("'" + word + "' did not survive the snapshot.");
+            }
+        }
+
+        AVLTree<String> avl = new AVLTree<>();
+        start = System.nanoTime();
+        WordIngest.ingest(avl, files);
+        ingest = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-26s: %8.2f s%n", "AVL from text", ingest);
+        avl.save(snapshot);
+        start = System.nanoTime();
+        AVLTree<String> avlLoaded = AVLTree.load(snapshot);
+        load = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-26s: %8.2f s  (%.1fx faster than text, %d words)%n", "AVL load", load, ingest / load,
+                avlLoaded.size());
+    }
+}
@@ -0,0 +1,164 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only redo log made of checksummed batches.
+ *
+ * Small records (a type byte plus one int) are collected in memory and written
+ * as one batch with a single force() once `groupSize` of them have accumulated,
+ * or when {@link #commit()} is called. That group commit is what keeps the log
+ * from paying one fsync per operation; the trade-off is that the last, not yet
+ * committed group is lost on a crash.
+ *
+ * On disk every batch is `[int length][int crc32][payload]`. A crash can leave a
+ * torn batch at the end of the file, which {@link #readBatches()} detects by its
+ * length or checksum and ignores.
+ */
+public class WriteAheadLog implements Closeable {
+    private static final int BATCH_HEADER = 2 * Integer.BYTES;
+    private static final int RECORD_SIZE = 1 + Integer.BYTES;
+
+    private final FileChannel channel;
+    private final int groupSize;
+    private ByteBuffer pending;
+    private int pendingRecords;
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Opens (or creates) the log at `file`.
+     *
+     * @param file The log file.
+     * @param groupSize How many records to collect before forcing them as one batch.
+     */
+    public WriteAheadLog(Path file, int groupSize) throws IOException {
+        if (groupSize < 1) {
+            throw new IllegalArgumentException("Group size must be at least 1.");
+        }
+        this.groupSize = groupSize;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.pending = ByteBuffer.allocate(BATCH_HEADER + groupSize * RECORD_SIZE);
+        this.pending.position(BATCH_HEADER);
+    }
+
+    /**
+     * Buffers a record and commits the group once it is full.
+     */
+    public void append(byte type, int value) throws IOException {
+        pending.put(type).putInt(value);
+        if (++pendingRecords == groupSize) {
+            commit();
+        }
+    }
+
+    /**
+     * Writes and forces the records buffered so far as one batch.
+     */
+    public void commit() throws IOException {
+        if (pendingRecords == 0) {
+            return;
+        }
+        writeBatch(pending);
+        pending.clear();
+        pending.position(BATCH_HEADER);
+        pendingRecords = 0;
+    }
+
+    /**
+     * Writes a caller-built batch after committing anything still pending. The
+     * buffer must leave BATCH_HEADER bytes free at its start and be positioned at
+     * the end of the payload; the whole batch is applied or ignored as a unit.
+     */
+    public void append(ByteBuffer batch) throws IOException {
+        commit();
+        writeBatch(batch);
+    }
+
+    /**
+     * Allocates a buffer for {@link #append(ByteBuffer)} with room for `payloadBytes`.
+     */
+    public static ByteBuffer newBatch(int payloadBytes) {
+        ByteBuffer batch = ByteBuffer.allocate(BATCH_HEADER + payloadBytes);
+        batch.position(BATCH_HEADER);
+        return batch;
+    }
+
+    private void writeBatch(ByteBuffer batch) throws IOException {
+        int length = batch.position() - BATCH_HEADER;
+        crc.reset();
+        crc.update(batch.array(), BATCH_HEADER, length);
+        batch.putInt(0, length);
+        batch.putInt(Integer.BYTES, (int) crc.getValue());
+        batch.flip();
+        channel.position(channel.size());
+        while (batch.hasRemaining()) {
+            channel.write(batch);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Reads back every complete, intact batch in log order. Reading stops at the
+     * first torn or corrupt batch, which can only be the tail of the log.
+     */
+    public List<ByteBuffer> readBatches() throws IOException {
+        List<ByteBuffer> batches = new ArrayList<>();
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(BATCH_HEADER);
+
+        while (position + BATCH_HEADER <= size) {
+            header.clear();
+            channel.read(header, position);
+            int length = header.getInt(0);
+            int checksum = header.getInt(Integer.BYTES);
+            if (length < 0 || position + BATCH_HEADER + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            while (payload.hasRemaining()) {
+                channel.read(payload, position + BATCH_HEADER + payload.position());
+            }
+            crc.reset();
+            crc.update(payload.array(), 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            payload.flip();
+            batches.add(payload);
+            position += BATCH_HEADER + length;
+        }
+        return batches;
+    }
+
+    /**
+     * Size of the log on disk, not counting records that are still buffered.
+     */
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * Drops everything in the log, e.g. once a checkpoint has made it redundant.
+     */
+    public void truncate() throws IOException {
+        pending.clear();
+        pending.position(BATCH_HEADER);
+        pendingRecords = 0;
+        channel.truncate(0);
+        channel.force(true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        commit();
+        channel.close();
+    }
+}